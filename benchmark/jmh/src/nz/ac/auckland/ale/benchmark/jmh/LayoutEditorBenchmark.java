@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale.benchmark.jmh;
+
+import nz.ac.auckland.ale.EmptyAreaFinder;
+import nz.ac.auckland.ale.IEditOperation;
+import nz.ac.auckland.ale.LayoutEditor;
+import nz.ac.auckland.ale.benchmark.BenchmarkLayouts;
+import nz.ac.auckland.alm.Area;
+import nz.ac.auckland.alm.LayoutSpec;
+import nz.ac.auckland.alm.algebra.AlgebraData;
+import nz.ac.auckland.alm.algebra.TilingAlgebra;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks of the LayoutEditor on grid layouts of 10 to 10,000 areas. Only uses the nz.ac.auckland.ale package, no IDE is needed.
+ *
+ * Reports throughput and the latency distribution. Run it headless with the gc profiler to get the allocation rate:
+ *
+ *   java -cp &lt;classpath&gt; org.openjdk.jmh.Main LayoutEditorBenchmark -prof gc
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutEditorBenchmark {
+  @State(Scope.Thread)
+  public static class EditorState {
+    @Param({"10", "100", "1000", "10000"})
+    public int areaCount;
+
+    LayoutEditor layoutEditor;
+    Area movedArea;
+    Area otherMovedArea;
+    Area resizedArea;
+    Area.Rect dragRect;
+    // middle of the cell at the center of the layout; the event offsets keep the cursor away from the tabs, in the same tab cell
+    float centerX;
+    float centerY;
+    int event = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      LayoutSpec layoutSpec = BenchmarkLayouts.grid(areaCount);
+      layoutEditor = new LayoutEditor(layoutSpec);
+      AlgebraData data = layoutEditor.getAlgebraData();
+      movedArea = data.getAreas().get(0);
+      otherMovedArea = data.getAreas().get(data.getAreas().size() - 1);
+
+      float width = (float)(layoutSpec.getRight().getValue() - layoutSpec.getLeft().getValue());
+      float height = (float)(layoutSpec.getBottom().getValue() - layoutSpec.getTop().getValue());
+      resizedArea = layoutEditor.findAreaAt(width / 2, height / 2);
+      Area.Rect cell = resizedArea.getRect();
+      centerX = (cell.left + cell.right) / 2;
+      centerY = (cell.top + cell.bottom) / 2;
+      Area.Rect rect = movedArea.getRect();
+      dragRect = new Area.Rect(centerX, centerY, centerX + rect.getWidth(), centerY + rect.getHeight());
+    }
+
+    float nextOffset() {
+      event++;
+      return event % 5;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class DeleteState {
+    @Param({"10", "100", "1000", "10000"})
+    public int areaCount;
+
+    LayoutEditor layoutEditor;
+    Area deletedArea;
+
+    // perform() changes the layout, so every invocation needs a new one
+    @Setup(Level.Invocation)
+    public void setUp() {
+      LayoutSpec layoutSpec = BenchmarkLayouts.grid(areaCount);
+      layoutEditor = new LayoutEditor(layoutSpec);
+      float centerX = (float)(layoutSpec.getRight().getValue() - layoutSpec.getLeft().getValue()) / 2;
+      float centerY = (float)(layoutSpec.getBottom().getValue() - layoutSpec.getTop().getValue()) / 2;
+      deletedArea = layoutEditor.findAreaAt(centerX, centerY);
+    }
+  }
+
+  /**
+   * Drag events in the same tab cell, the steady state of a drag.
+   */
+  @Benchmark
+  public IEditOperation detectDragOperationSameCell(EditorState state) {
+    float offset = state.nextOffset();
+    return state.layoutEditor.detectDragOperation(state.movedArea, state.dragRect, state.centerX + offset, state.centerY + offset);
+  }
+
+  /**
+   * Alternates the moved area, so that every event runs the full detection.
+   */
+  @Benchmark
+  public IEditOperation detectDragOperationFull(EditorState state) {
+    Area movedArea = state.event % 2 == 0 ? state.movedArea : state.otherMovedArea;
+    float offset = state.nextOffset();
+    return state.layoutEditor.detectDragOperation(movedArea, state.dragRect, state.centerX + offset, state.centerY + offset);
+  }
+
+  @Benchmark
+  public IEditOperation detectResizeOperation(EditorState state) {
+    Area area = state.resizedArea;
+    float x = (float)area.getRight().getValue() + state.nextOffset();
+    return state.layoutEditor.detectResizeOperation(area, area.getRight(), null, x, state.centerY);
+  }
+
+  /**
+   * Goes through LayoutEditor.perform, so it includes the cleaning of the empty spaces and the index updates an edit pays for.
+   */
+  @Benchmark
+  public void deletePerform(DeleteState state) {
+    LayoutEditor layoutEditor = state.layoutEditor;
+    layoutEditor.perform(layoutEditor.getDeleteOperation(state.deletedArea));
+  }
+
+  /**
+   * Includes the clone the finder works on, see cloneWithReplacedEmptySpaces for its share.
+   */
+  @Benchmark
+  public void emptyAreaFinderFind(EditorState state, Blackhole blackhole) {
+    AlgebraData clone = LayoutEditor.cloneWithReplacedEmptySpaces(state.layoutEditor.getAlgebraData());
+    TilingAlgebra.makeAreaEmpty(clone, state.resizedArea);
+    EmptyAreaFinder finder = new EmptyAreaFinder(clone);
+    blackhole.consume(finder.find(state.centerX, state.centerY));
+    blackhole.consume(finder);
+  }
+
+  @Benchmark
+  public AlgebraData cloneWithReplacedEmptySpaces(EditorState state) {
+    return LayoutEditor.cloneWithReplacedEmptySpaces(state.layoutEditor.getAlgebraData());
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale.benchmark;
+
+import nz.ac.auckland.ale.IEditOperation;
+import nz.ac.auckland.ale.LayoutEditor;
+import nz.ac.auckland.alm.Area;
+import nz.ac.auckland.alm.LayoutSpec;
+
+import java.lang.management.ManagementFactory;
+
+
+/**
+ * Checks that a drag and a resize don't allocate in the steady state, i.e. while the cursor stays in the same tab cell and the
+ * detection results come from the caches.
+ *
+ * Exits with status 1 if an event allocates. The bytes per event are rounded down, so the few bytes the measurement itself may
+ * allocate don't count.
+ */
+public class AllocationBudget {
+  static final int EVENTS = 100000;
+  static final long DRAG_BUDGET = 0;
+  static final long RESIZE_BUDGET = 0;
+
+  interface IEvent {
+    void run(int i);
+  }
+
+  public static void main(String[] args) {
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    if (!threadBean.isThreadAllocatedMemorySupported()) {
+      System.out.println("thread allocation measurement is not supported");
+      return;
+    }
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+
+    LayoutSpec layoutSpec = BenchmarkLayouts.grid(10, 10, 100, 100);
+    final LayoutEditor layoutEditor = new LayoutEditor(layoutSpec);
+    final Area movedArea = layoutEditor.getAlgebraData().getAreas().get(0);
+    final Area resizedArea = layoutEditor.findAreaAt(450, 450);
+
+    boolean ok = true;
+    ok &= check(threadBean, "drag", DRAG_BUDGET, new IEvent() {
+      final Area.Rect dragRect = new Area.Rect(0, 0, 100, 100);
+
+      @Override
+      public void run(int i) {
+        // stay inside the tab cell of the area at (550, 550), away from its tabs
+        float x = 540 + i % 20;
+        float y = 540 + (i / 20) % 20;
+        IEditOperation operation = layoutEditor.detectDragOperation(movedArea, dragRect, x, y);
+        if (operation != null)
+          operation.getFeedback();
+      }
+    });
+    ok &= check(threadBean, "resize", RESIZE_BUDGET, new IEvent() {
+      @Override
+      public void run(int i) {
+        float x = 520 + i % 20;
+        IEditOperation operation = layoutEditor.detectResizeOperation(resizedArea, resizedArea.getRight(), null, x, 450);
+        operation.getFeedback();
+      }
+    });
+    if (!ok)
+      System.exit(1);
+  }
+
+  static private boolean check(com.sun.management.ThreadMXBean threadBean, String name, long budget, IEvent event) {
+    long threadId = Thread.currentThread().getId();
+    // warm up, also fills the caches of the steady state
+    for (int i = 0; i < EVENTS; i++)
+      event.run(i);
+
+    long start = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < EVENTS; i++)
+      event.run(i);
+    long perEvent = (threadBean.getThreadAllocatedBytes(threadId) - start) / EVENTS;
+
+    boolean ok = perEvent <= budget;
+    System.out.println(String.format("%-8s %6d bytes/event (budget %d) %s", name, perEvent, budget, ok ? "ok" : "EXCEEDED"));
+    return ok;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale.benchmark;
+
+import nz.ac.auckland.alm.Area;
+import nz.ac.auckland.alm.IArea;
+import nz.ac.auckland.alm.LayoutSpec;
+
+import java.util.*;
+
+
+/**
+ * Measures how the designer's LayoutSpecManager maps the areas of the rendered layout to their clones, for containers with up to
+ * 2,000 children. The manager itself needs the IDE, so this benchmark repeats its steps: clone the LayoutSpec, then look up the
+ * clone of every child in the order of the children.
+ *
+ * The old lookup used indexOf on the area list, which makes a build quadratic in the number of children. The identity map is
+ * filled in one pass after the clone, so a build is linear.
+ */
+public class AreaMappingBenchmark {
+  static final int BUILDS = 20;
+
+  public static void main(String[] args) {
+    int[] sizes = {500, 1000, 2000};
+    for (int size : sizes)
+      run(size);
+  }
+
+  static private void run(int childCount) {
+    LayoutGenerator generator = new LayoutGenerator(42);
+    LayoutSpec layoutSpec = generator.generate(LayoutGenerator.Pattern.RECURSIVE_SPLIT, childCount, 2000, 2000).layoutSpec;
+    // children are usually not in the order of the areas
+    List<IArea> children = new ArrayList<IArea>(layoutSpec.getAreas());
+    Collections.shuffle(children, new Random(42));
+
+    // warm up
+    buildWithIndexOf(layoutSpec, children);
+    buildWithIdentityMap(layoutSpec, children);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < BUILDS; i++)
+      buildWithIndexOf(layoutSpec, children);
+    long indexOfTime = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < BUILDS; i++)
+      buildWithIdentityMap(layoutSpec, children);
+    long identityMapTime = System.nanoTime() - start;
+
+    System.out.println(String.format("children: %5d  indexOf: %10.1f us/build  identity map: %10.1f us/build", childCount,
+                                     indexOfTime / 1000.0 / BUILDS, identityMapTime / 1000.0 / BUILDS));
+  }
+
+  @SuppressWarnings("unchecked")
+  static private LayoutSpec cloneLayoutSpec(LayoutSpec layoutSpec) {
+    return LayoutSpec.clone(layoutSpec.getAreas(), Collections.EMPTY_LIST, layoutSpec.getLeft(), layoutSpec.getTop(),
+                            layoutSpec.getRight(), layoutSpec.getBottom());
+  }
+
+  static private Map<IArea, Area> buildWithIndexOf(LayoutSpec layoutSpec, List<IArea> children) {
+    LayoutSpec clone = cloneLayoutSpec(layoutSpec);
+    List<IArea> orgAreas = layoutSpec.getAreas();
+    Map<IArea, Area> childToClonedArea = new HashMap<IArea, Area>();
+    for (IArea child : children)
+      childToClonedArea.put(child, (Area)clone.getAreas().get(orgAreas.indexOf(child)));
+    return childToClonedArea;
+  }
+
+  static private Map<IArea, Area> buildWithIdentityMap(LayoutSpec layoutSpec, List<IArea> children) {
+    LayoutSpec clone = cloneLayoutSpec(layoutSpec);
+    List<IArea> orgAreas = layoutSpec.getAreas();
+    List<IArea> clonedAreas = clone.getAreas();
+    Map<IArea, Area> orgToClonedArea = new IdentityHashMap<IArea, Area>();
+    for (int i = 0; i < orgAreas.size(); i++)
+      orgToClonedArea.put(orgAreas.get(i), (Area)clonedAreas.get(i));
+    Map<IArea, Area> childToClonedArea = new HashMap<IArea, Area>();
+    for (IArea child : children)
+      childToClonedArea.put(child, orgToClonedArea.get(child));
+    return childToClonedArea;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale.benchmark;
+
+import nz.ac.auckland.alm.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Layouts for the benchmarks.
+ */
+public class BenchmarkLayouts {
+  /**
+   * Creates a layout with columns * rows areas of the same size.
+   */
+  @SuppressWarnings("unchecked")
+  static public LayoutSpec grid(int columns, int rows, float cellWidth, float cellHeight) {
+    XTab[] xTabs = new XTab[columns + 1];
+    for (int i = 0; i <= columns; i++) {
+      xTabs[i] = new XTab("x" + i);
+      xTabs[i].setValue(i * cellWidth);
+    }
+    YTab[] yTabs = new YTab[rows + 1];
+    for (int i = 0; i <= rows; i++) {
+      yTabs[i] = new YTab("y" + i);
+      yTabs[i].setValue(i * cellHeight);
+    }
+
+    List<IArea> areas = new ArrayList<IArea>();
+    for (int column = 0; column < columns; column++) {
+      for (int row = 0; row < rows; row++)
+        areas.add(new Area(xTabs[column], yTabs[row], xTabs[column + 1], yTabs[row + 1]));
+    }
+    return LayoutSpec.clone(areas, Collections.EMPTY_LIST, xTabs[0], yTabs[0], xTabs[columns], yTabs[rows]);
+  }
+
+  /**
+   * Creates a roughly square grid layout with at least the given number of areas.
+   */
+  static public LayoutSpec grid(int areaCount) {
+    int columns = (int)Math.ceil(Math.sqrt(areaCount));
+    int rows = (areaCount + columns - 1) / columns;
+    return grid(columns, rows, 40, 30);
+  }
+}
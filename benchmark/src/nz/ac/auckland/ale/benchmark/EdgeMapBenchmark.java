@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale.benchmark;
+
+import nz.ac.auckland.ale.LayoutEditor;
+import nz.ac.auckland.ale.SwapOperation;
+import nz.ac.auckland.alm.Area;
+import nz.ac.auckland.alm.LayoutSpec;
+import nz.ac.auckland.alm.algebra.AlgebraData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Compares the cost of updating the tab edges of a kept AlgebraData with rebuilding the AlgebraData from the LayoutSpec.
+ *
+ * Every swap removes and adds two areas, i.e. it makes four area changes. Keeping the AlgebraData only pays off if the time per
+ * area change grows much slower with the number of areas than the rebuild time. How AlgebraData updates its edges is up to the
+ * alm library, so the benchmark prints the growth of both relative to the smallest layout instead of assuming it.
+ */
+public class EdgeMapBenchmark {
+  static final int SWAPS = 20000;
+  static final int REBUILDS = 20;
+
+  public static void main(String[] args) {
+    int[] sizes = {100, 1000, 10000};
+    double[] first = null;
+    for (int size : sizes) {
+      double[] times = run(size);
+      if (first == null)
+        first = times;
+      System.out.println(String.format("               growth vs. %d areas: update x%.2f  rebuild x%.2f", sizes[0],
+                                       times[0] / first[0], times[1] / first[1]));
+    }
+  }
+
+  /**
+   * @return the time per area change and the time per rebuild, in ns
+   */
+  static private double[] run(int areaCount) {
+    LayoutSpec layoutSpec = BenchmarkLayouts.grid(areaCount);
+    LayoutEditor layoutEditor = new LayoutEditor(layoutSpec);
+    AlgebraData data = layoutEditor.getAlgebraData();
+    List<Area> areas = new ArrayList<Area>(data.getAreas());
+    Random random = new Random(42);
+
+    // warm up
+    swap(layoutEditor, areas, random, SWAPS);
+
+    long start = System.nanoTime();
+    swap(layoutEditor, areas, random, SWAPS);
+    long updateTime = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < REBUILDS; i++)
+      new AlgebraData(layoutSpec, null);
+    long rebuildTime = System.nanoTime() - start;
+
+    double updateNanos = (double)updateTime / (SWAPS * 4);
+    double rebuildNanos = (double)rebuildTime / REBUILDS;
+    System.out.println(String.format("areas: %6d  update: %8.1f ns/area change  rebuild: %10.1f us", areas.size(), updateNanos,
+                                     rebuildNanos / 1000.0));
+    return new double[] {updateNanos, rebuildNanos};
+  }
+
+  static private void swap(LayoutEditor layoutEditor, List<Area> areas, Random random, int count) {
+    for (int i = 0; i < count; i++) {
+      Area area1 = areas.get(random.nextInt(areas.size()));
+      Area area2 = areas.get(random.nextInt(areas.size()));
+      SwapOperation swapOperation = new SwapOperation(layoutEditor, area1, area2);
+      if (swapOperation.canPerform())
+        swapOperation.perform();
+    }
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale.benchmark;
+
+import nz.ac.auckland.alm.*;
+import nz.ac.auckland.alm.algebra.AlgebraData;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.util.*;
+
+
+/**
+ * Generates random but valid tilings for benchmarks and stress runs. The same seed gives the same layouts.
+ *
+ * Every generated layout comes as LayoutSpec, as matching AlgebraData and as ALMLayout xml. In the xml every area is a view that
+ * refers to its tabs by name, the layout borders are implicit.
+ */
+public class LayoutGenerator {
+  public enum Pattern {
+    // areas of the same size
+    GRID,
+    // areas are split at random positions until there are enough
+    RECURSIVE_SPLIT,
+    // a single row of areas, i.e. one long chain of x tabs
+    CHAIN,
+    // a recursive split where about a third of the tiles are left empty
+    FRAGMENTED
+  }
+
+  public static class GeneratedLayout {
+    public final LayoutSpec layoutSpec;
+    public final AlgebraData algebraData;
+    public final String xml;
+
+    GeneratedLayout(LayoutSpec layoutSpec, AlgebraData algebraData, String xml) {
+      this.layoutSpec = layoutSpec;
+      this.algebraData = algebraData;
+      this.xml = xml;
+    }
+  }
+
+  static private class Tile {
+    final XTab left;
+    final YTab top;
+    final XTab right;
+    final YTab bottom;
+    boolean empty = false;
+
+    Tile(XTab left, YTab top, XTab right, YTab bottom) {
+      this.left = left;
+      this.top = top;
+      this.right = right;
+      this.bottom = bottom;
+    }
+
+    double getWidth() {
+      return right.getValue() - left.getValue();
+    }
+
+    double getHeight() {
+      return bottom.getValue() - top.getValue();
+    }
+  }
+
+  static final float MIN_TILE_SIZE = 4;
+
+  final private Random random;
+  private int xTabCount;
+  private int yTabCount;
+
+  public LayoutGenerator(long seed) {
+    random = new Random(seed);
+  }
+
+  /**
+   * @param areaCount number of (non empty) areas
+   * @param width width of the layout, width / height is the aspect ratio of the layout
+   * @param height height of the layout
+   */
+  public GeneratedLayout generate(Pattern pattern, int areaCount, float width, float height) {
+    xTabCount = 0;
+    yTabCount = 0;
+    XTab left = createXTab(0);
+    YTab top = createYTab(0);
+    XTab right = createXTab(width);
+    YTab bottom = createYTab(height);
+
+    List<Tile> tiles;
+    switch (pattern) {
+      case GRID:
+        tiles = grid(left, top, right, bottom, areaCount);
+        break;
+      case RECURSIVE_SPLIT:
+        tiles = split(left, top, right, bottom, areaCount);
+        break;
+      case CHAIN:
+        tiles = chain(left, top, right, bottom, areaCount);
+        break;
+      case FRAGMENTED:
+        tiles = split(left, top, right, bottom, areaCount + areaCount / 2);
+        fragment(tiles, areaCount);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown pattern: " + pattern);
+    }
+    return build(tiles, left, top, right, bottom);
+  }
+
+  private XTab createXTab(double value) {
+    XTab tab = new XTab("x" + xTabCount++);
+    tab.setValue(value);
+    return tab;
+  }
+
+  private YTab createYTab(double value) {
+    YTab tab = new YTab("y" + yTabCount++);
+    tab.setValue(value);
+    return tab;
+  }
+
+  private List<Tile> grid(XTab left, YTab top, XTab right, YTab bottom, int areaCount) {
+    double width = right.getValue() - left.getValue();
+    double height = bottom.getValue() - top.getValue();
+    // roughly square cells
+    int columns = Math.max(1, (int)Math.round(Math.sqrt(areaCount * width / height)));
+    int rows = (areaCount + columns - 1) / columns;
+
+    XTab[] xTabs = new XTab[columns + 1];
+    xTabs[0] = left;
+    xTabs[columns] = right;
+    for (int i = 1; i < columns; i++)
+      xTabs[i] = createXTab(left.getValue() + i * width / columns);
+    YTab[] yTabs = new YTab[rows + 1];
+    yTabs[0] = top;
+    yTabs[rows] = bottom;
+    for (int i = 1; i < rows; i++)
+      yTabs[i] = createYTab(top.getValue() + i * height / rows);
+
+    List<Tile> tiles = new ArrayList<Tile>();
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        Tile tile = new Tile(xTabs[column], yTabs[row], xTabs[column + 1], yTabs[row + 1]);
+        // the last row may not be full
+        tile.empty = tiles.size() >= areaCount;
+        tiles.add(tile);
+      }
+    }
+    return tiles;
+  }
+
+  private List<Tile> chain(XTab left, YTab top, XTab right, YTab bottom, int areaCount) {
+    double width = right.getValue() - left.getValue();
+    List<Tile> tiles = new ArrayList<Tile>();
+    XTab previous = left;
+    for (int i = 1; i <= areaCount; i++) {
+      XTab next = i == areaCount ? right : createXTab(left.getValue() + i * width / areaCount);
+      tiles.add(new Tile(previous, top, next, bottom));
+      previous = next;
+    }
+    return tiles;
+  }
+
+  private List<Tile> split(XTab left, YTab top, XTab right, YTab bottom, int tileCount) {
+    List<Tile> tiles = new ArrayList<Tile>();
+    tiles.add(new Tile(left, top, right, bottom));
+    while (tiles.size() < tileCount) {
+      Tile tile = pickSplittableTile(tiles);
+      if (tile == null)
+        break;
+      tiles.remove(tile);
+      // split the longer side at 30% to 70%
+      double ratio = 0.3 + 0.4 * random.nextDouble();
+      if (tile.getWidth() >= tile.getHeight()) {
+        XTab tab = createXTab(tile.left.getValue() + ratio * tile.getWidth());
+        tiles.add(new Tile(tile.left, tile.top, tab, tile.bottom));
+        tiles.add(new Tile(tab, tile.top, tile.right, tile.bottom));
+      } else {
+        YTab tab = createYTab(tile.top.getValue() + ratio * tile.getHeight());
+        tiles.add(new Tile(tile.left, tile.top, tile.right, tab));
+        tiles.add(new Tile(tile.left, tab, tile.right, tile.bottom));
+      }
+    }
+    return tiles;
+  }
+
+  /**
+   * Picks one of the larger tiles, so that the tiles don't get too small on one side of the layout.
+   */
+  private Tile pickSplittableTile(List<Tile> tiles) {
+    Tile picked = null;
+    double pickedSize = 0;
+    // best of three random tiles
+    for (int i = 0; i < 3; i++) {
+      Tile tile = tiles.get(random.nextInt(tiles.size()));
+      double size = Math.max(tile.getWidth(), tile.getHeight());
+      if (size >= 2 * MIN_TILE_SIZE && size > pickedSize) {
+        picked = tile;
+        pickedSize = size;
+      }
+    }
+    if (picked != null)
+      return picked;
+    for (Tile tile : tiles) {
+      if (Math.max(tile.getWidth(), tile.getHeight()) >= 2 * MIN_TILE_SIZE)
+        return tile;
+    }
+    return null;
+  }
+
+  private void fragment(List<Tile> tiles, int areaCount) {
+    List<Tile> shuffled = new ArrayList<Tile>(tiles);
+    Collections.shuffle(shuffled, random);
+    for (int i = 0; i < shuffled.size() - areaCount; i++)
+      shuffled.get(i).empty = true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private GeneratedLayout build(List<Tile> tiles, XTab left, YTab top, XTab right, YTab bottom) {
+    List<IArea> areas = new ArrayList<IArea>();
+    for (Tile tile : tiles) {
+      if (!tile.empty)
+        areas.add(new Area(tile.left, tile.top, tile.right, tile.bottom));
+    }
+    LayoutSpec layoutSpec = LayoutSpec.clone(areas, Collections.EMPTY_LIST, left, top, right, bottom);
+
+    // map the generated tabs to the tabs of the cloned LayoutSpec
+    Map<Variable, Variable> tabMap = new HashMap<Variable, Variable>();
+    tabMap.put(left, layoutSpec.getLeft());
+    tabMap.put(top, layoutSpec.getTop());
+    tabMap.put(right, layoutSpec.getRight());
+    tabMap.put(bottom, layoutSpec.getBottom());
+    for (int i = 0; i < areas.size(); i++) {
+      IArea area = areas.get(i);
+      IArea clone = layoutSpec.getAreas().get(i);
+      tabMap.put(area.getLeft(), clone.getLeft());
+      tabMap.put(area.getTop(), clone.getTop());
+      tabMap.put(area.getRight(), clone.getRight());
+      tabMap.put(area.getBottom(), clone.getBottom());
+    }
+
+    AlgebraData algebraData = new AlgebraData(layoutSpec.getLeft(), layoutSpec.getTop(), layoutSpec.getRight(),
+                                              layoutSpec.getBottom());
+    for (IArea area : layoutSpec.getAreas())
+      algebraData.addArea(area);
+    for (Tile tile : tiles) {
+      if (!tile.empty)
+        continue;
+      // tabs that are only used by empty spaces are not in the LayoutSpec
+      algebraData.addArea(new EmptySpace(getTab(tabMap, tile.left), getTab(tabMap, tile.top), getTab(tabMap, tile.right),
+                                         getTab(tabMap, tile.bottom)));
+    }
+    return new GeneratedLayout(layoutSpec, algebraData, toXml(areas, left, top, right, bottom));
+  }
+
+  @SuppressWarnings("unchecked")
+  static private <Tab extends Variable> Tab getTab(Map<Variable, Variable> tabMap, Tab tab) {
+    Variable mapped = tabMap.get(tab);
+    if (mapped == null) {
+      Tab clone = (Tab)(tab instanceof XTab ? new XTab(tab.getName()) : new YTab(tab.getName()));
+      clone.setValue(tab.getValue());
+      tabMap.put(tab, clone);
+      return clone;
+    }
+    return (Tab)mapped;
+  }
+
+  static private String toXml(List<IArea> areas, XTab left, YTab top, XTab right, YTab bottom) {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+    xml.append("<nz.ac.auckland.alm.android.ALMLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n");
+    xml.append("    xmlns:app=\"http://schemas.android.com/apk/res-auto\"\n");
+    xml.append("    android:layout_width=\"match_parent\"\n");
+    xml.append("    android:layout_height=\"match_parent\">\n");
+    for (int i = 0; i < areas.size(); i++) {
+      IArea area = areas.get(i);
+      xml.append("  <Button\n");
+      xml.append("      android:id=\"@+id/view").append(i).append("\"\n");
+      xml.append("      android:layout_width=\"wrap_content\"\n");
+      xml.append("      android:layout_height=\"wrap_content\"");
+      appendTab(xml, "layout_leftTab", area.getLeft(), left);
+      appendTab(xml, "layout_topTab", area.getTop(), top);
+      appendTab(xml, "layout_rightTab", area.getRight(), right);
+      appendTab(xml, "layout_bottomTab", area.getBottom(), bottom);
+      xml.append(" />\n");
+    }
+    xml.append("</nz.ac.auckland.alm.android.ALMLayout>\n");
+    return xml.toString();
+  }
+
+  static private void appendTab(StringBuilder xml, String attribute, Variable tab, Variable border) {
+    // there are no tags for the layout border
+    if (tab == border)
+      return;
+    xml.append("\n      app:").append(attribute).append("=\"").append(tab.getName()).append("\"");
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale.benchmark;
+
+import nz.ac.auckland.ale.IEditOperation;
+import nz.ac.auckland.ale.LayoutEditor;
+import nz.ac.auckland.ale.SessionRecording;
+import nz.ac.auckland.alm.LayoutSpec;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Replays drag and resize sessions recorded by the designer (see the ale.record.dir system property) and prints the detection
+ * latencies. No IDE is needed.
+ *
+ *   java -cp &lt;classpath&gt; nz.ac.auckland.ale.benchmark.SessionReplayer [-repeat n] session.bin...
+ *
+ * Every repetition replays the session on a new LayoutEditor, so the first events of a repetition include the cache misses of
+ * the recorded session. The latency of an event includes getFeedback(), like in the designer.
+ */
+public class SessionReplayer {
+  public static void main(String[] args) throws IOException {
+    int repeat = 1;
+    int i = 0;
+    if (args.length >= 2 && args[0].equals("-repeat")) {
+      repeat = Integer.parseInt(args[1]);
+      i = 2;
+    }
+    if (i == args.length) {
+      System.out.println("usage: SessionReplayer [-repeat n] session.bin...");
+      System.exit(1);
+    }
+    for (; i < args.length; i++) {
+      InputStream inputStream = new FileInputStream(args[i]);
+      SessionRecording recording;
+      try {
+        recording = SessionRecording.read(inputStream);
+      } finally {
+        inputStream.close();
+      }
+      System.out.println(args[i] + ": " + recording.getEvents().size() + " events");
+      replay(recording, repeat);
+    }
+  }
+
+  static private void replay(SessionRecording recording, int repeat) {
+    List<SessionRecording.Event> events = recording.getEvents();
+    long[] dragTimes = new long[events.size() * repeat];
+    long[] resizeTimes = new long[events.size() * repeat];
+    int drags = 0;
+    int resizes = 0;
+    for (int run = 0; run < repeat; run++) {
+      LayoutSpec layoutSpec = recording.createLayoutSpec();
+      LayoutEditor layoutEditor = new LayoutEditor(layoutSpec);
+      for (SessionRecording.Event event : events) {
+        long start = System.nanoTime();
+        IEditOperation operation = recording.replay(event, layoutEditor, layoutSpec);
+        if (operation != null)
+          operation.getFeedback();
+        long time = System.nanoTime() - start;
+        if (event.isDrag())
+          dragTimes[drags++] = time;
+        else
+          resizeTimes[resizes++] = time;
+      }
+    }
+    print("drag", dragTimes, drags);
+    print("resize", resizeTimes, resizes);
+  }
+
+  static private void print(String name, long[] times, int count) {
+    if (count == 0)
+      return;
+    long[] sorted = Arrays.copyOf(times, count);
+    Arrays.sort(sorted);
+    System.out.println(String.format("  %-8s %6d events  p50: %8.1f us  p90: %8.1f us  p99: %8.1f us  max: %8.1f us", name, count,
+                                     percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+                                     sorted[count - 1] / 1000.0));
+  }
+
+  static private double percentile(long[] sorted, double fraction) {
+    int index = (int)Math.ceil(fraction * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1000.0;
+  }
+}
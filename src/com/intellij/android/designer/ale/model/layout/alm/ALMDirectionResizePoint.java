@@ -79,6 +79,6 @@ public class ALMDirectionResizePoint  extends com.intellij.designer.designSurfac
     }
     Area.Rect rect = area.getRect();
 
-    return LayoutSpecManager.fromModel(layer, almLayoutSpecs, component.getParent(), rect);
+    return LayoutSpecManager.fromModel(layer, almLayoutSpecs, component.getParent(), rect, new Rectangle());
   }
 }
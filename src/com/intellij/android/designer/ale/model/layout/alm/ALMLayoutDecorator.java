@@ -18,15 +18,13 @@ package com.intellij.android.designer.ale.model.layout.alm;
 import com.intellij.designer.designSurface.DecorationLayer;
 import com.intellij.designer.designSurface.StaticDecorator;
 import com.intellij.designer.model.RadComponent;
-import nz.ac.auckland.alm.Area;
-import nz.ac.auckland.alm.EmptySpace;
-import nz.ac.auckland.alm.IArea;
-import nz.ac.auckland.alm.LayoutSpec;
 
 import java.awt.*;
 
 
 public class ALMLayoutDecorator extends StaticDecorator {
+  private static final Color EMPTY_SPACE_COLOR = new Color(220, 220, 90);
+
   final RadALMLayout myRadALMLayout;
 
   public ALMLayoutDecorator(RadComponent container, RadALMLayout almLayout) {
@@ -42,18 +40,15 @@ public class ALMLayoutDecorator extends StaticDecorator {
     }
 
     LayoutSpecManager manager = myRadALMLayout.getLayoutSpecManager();
-    LayoutSpec layoutSpec = manager.getLayoutSpec();
-    for (IArea area : layoutSpec.getAreas()) {
-      if (!(area instanceof EmptySpace))
-        continue;
-
-      Area.Rect rect = new Area.Rect((float)area.getLeft().getValue(), (float)area.getTop().getValue(), (float)area.getRight().getValue(),
-                                     (float)area.getBottom().getValue());
-
-      Rectangle areaBounds = LayoutSpecManager.fromModel(layer, manager.getALMLayoutSpecs(), container, rect);
+    // a detection may be probing the LayoutSpec, paint the snapshot of the empty spaces instead
+    double[] emptySpaceBounds = manager.getEmptySpaceBounds();
+    ModelViewTransform transform = LayoutSpecManager.getModelViewTransform(layer, manager.getALMLayoutSpecs(), container);
+    Rectangle areaBounds = new Rectangle();
+    g.setColor(EMPTY_SPACE_COLOR);
+    for (int i = 0; i < emptySpaceBounds.length; i += 4) {
+      transform.toView(emptySpaceBounds[i], emptySpaceBounds[i + 1], emptySpaceBounds[i + 2], emptySpaceBounds[i + 3], areaBounds);
 
       inset(areaBounds, 2);
-      g.setColor(new Color(220, 220, 90));
       g.fillRect(areaBounds.x, areaBounds.y, areaBounds.width, areaBounds.height);
     }
   }
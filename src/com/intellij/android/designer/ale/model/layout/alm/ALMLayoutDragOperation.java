@@ -24,9 +24,15 @@ import nz.ac.auckland.ale.LayoutEditor;
 import nz.ac.auckland.alm.Area;
 
 import java.awt.*;
+import java.util.concurrent.Callable;
 
 
 public class ALMLayoutDragOperation extends ALMLayoutOperation {
+  // size of a new component, e.g. from the palette, in model coordinates
+  private static final int CREATED_WIDTH_MODEL = 50;
+  private static final int CREATED_HEIGHT_MODEL = 40;
+  private final Rectangle myModelDragRect = new Rectangle();
+
   public ALMLayoutDragOperation(RadComponent container, OperationContext context, LayoutSpecManager layoutSpecManager) {
     super(container, context, layoutSpecManager);
   }
@@ -35,33 +41,57 @@ public class ALMLayoutDragOperation extends ALMLayoutOperation {
   public void showFeedback() {
     super.showFeedback();
 
-    FeedbackLayer layer = myContext.getArea().getFeedbackLayer();
+    Rectangle dragRectView = getDragRectView();
+    myFeedbackPainter.setDragRect(dragRectView.x, dragRectView.y, dragRectView.width, dragRectView.height);
+    myFeedbackPainter.repaint();
+    requestFeedback();
+  }
 
-    RadViewComponent selection = RadViewComponent.getViewComponents(myComponents).get(0);
+  private RadViewComponent getSelection() {
+    return RadViewComponent.getViewComponents(myComponents).get(0);
+  }
+
+  private Rectangle getDragRectView() {
+    RadViewComponent selection = getSelection();
     Area moveArea = myLayoutSpecManager.getAreaFor(selection);
     Rectangle dragRectView;
-    Point modelMouseLocation = getModelMousePosition();
     if (moveArea == null) {
-      LayoutEditor layoutEditor = myLayoutSpecManager.getLayoutEditor();
-      int width = (int)(50 / layoutEditor.getModelViewScale());
-      int height = (int)(40 / layoutEditor.getModelViewScale());
+      // a new component gets a fixed size in model coordinates
+      float modelViewScale = myLayoutSpecManager.getLayoutEditor().getModelViewScale();
+      int width = Math.round(CREATED_WIDTH_MODEL * modelViewScale);
+      int height = Math.round(CREATED_HEIGHT_MODEL * modelViewScale);
       Point mouse = myContext.getLocation();
       dragRectView = new Rectangle(mouse.x - width / 2, mouse.y - height / 2, width, height);
-      myFeedbackPainter.setDragRect(dragRectView.x, dragRectView.y, dragRectView.width, dragRectView.height);
     } else {
+      FeedbackLayer layer = myContext.getArea().getFeedbackLayer();
       Rectangle selectionRect = selection.getBounds();
       dragRectView = selection.fromModel(layer, selectionRect);
       Point moveDelta = myContext.getMoveDelta();
       dragRectView.translate(moveDelta.x, moveDelta.y);
-      myFeedbackPainter.setDragRect(dragRectView.x, dragRectView.y, dragRectView.width, dragRectView.height);
     }
-    LayoutEditor layoutEditor = myLayoutSpecManager.getLayoutEditor();
-    Rectangle aleRect = myLayoutSpecManager.toModel(layer, dragRectView);
-    Area.Rect dragRect = new Area.Rect(aleRect.x, aleRect.y, aleRect.x + aleRect.width,
-                                       aleRect.y + aleRect.height);
-    IEditOperation editOperation = layoutEditor.detectDragOperation(moveArea, dragRect, modelMouseLocation.x, modelMouseLocation.y);
-    myFeedbackPainter.setEditOperation(editOperation);
-    myFeedbackPainter.repaint();
+    return dragRectView;
   }
-}
 
+  @Override
+  protected Callable<IEditOperation> createDetection() {
+    FeedbackLayer layer = myContext.getArea().getFeedbackLayer();
+
+    final Area moveArea = myLayoutSpecManager.getAreaFor(getSelection());
+    Point modelMouseLocation = getModelMousePosition();
+    final int mouseX = modelMouseLocation.x;
+    final int mouseY = modelMouseLocation.y;
+    Rectangle aleRect = myLayoutSpecManager.toModel(layer, getDragRectView(), myModelDragRect);
+    // the detection runs on the feedback thread, so it gets its own rect
+    final Area.Rect dragRect = new Area.Rect(aleRect.x, aleRect.y, aleRect.x + aleRect.width,
+                                             aleRect.y + aleRect.height);
+    if (myRecording != null)
+      myRecording.recordDrag(moveArea, dragRect, mouseX, mouseY);
+    final LayoutEditor layoutEditor = myLayoutSpecManager.getLayoutEditor();
+    return new Callable<IEditOperation>() {
+      @Override
+      public IEditOperation call() {
+        return layoutEditor.detectDragOperation(moveArea, dragRect, mouseX, mouseY);
+      }
+    };
+  }
+}
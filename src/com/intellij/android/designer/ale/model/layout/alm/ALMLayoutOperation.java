@@ -22,14 +22,32 @@ import com.intellij.designer.designSurface.FeedbackLayer;
 import com.intellij.designer.designSurface.OperationContext;
 import com.intellij.designer.model.RadComponent;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import nz.ac.auckland.ale.IEditOperation;
+import nz.ac.auckland.ale.SessionRecording;
+import nz.ac.auckland.alm.LayoutSpec;
 
 import java.awt.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
 
 
 class ALMLayoutOperation extends AbstractEditOperation {
+  private static final Logger LOG = Logger.getInstance(ALMLayoutOperation.class);
+  // drag and resize sessions are recorded into this directory if the ale.record.dir system property is set
+  private static final String ourRecordDir = System.getProperty("ale.record.dir");
+
   protected FeedbackPainter myFeedbackPainter;
   private MultiLineTooltipManager myTooltip;
   protected LayoutSpecManager myLayoutSpecManager;
+  // the recording of the current session, if recording is enabled
+  protected SessionRecording myRecording;
+  private final Point myModelMousePosition = new Point();
+  // feedback of the last detection; the EDT reads it instead of the detected operation, which the next detection changes
+  private FeedbackSnapshot myFeedback = FeedbackSnapshot.NONE;
 
   public ALMLayoutOperation(RadComponent container, OperationContext context, LayoutSpecManager layoutSpecManager) {
     super(container, context);
@@ -46,14 +64,63 @@ class ALMLayoutOperation extends AbstractEditOperation {
       layer.add(myFeedbackPainter);
       myFeedbackPainter.setBounds(0, 0, layer.getWidth(), layer.getHeight());
     }
+    if (myRecording == null && ourRecordDir != null)
+      myRecording = SessionRecording.start(myLayoutSpecManager.myLayoutSpec);
 
     // Position the tooltip
     Point location = myContext.getLocation();
     myTooltip.update((RadViewComponent) myContainer, location);
   }
 
+  /**
+   * Creates the detection of the edit operation for the current mouse position.
+   *
+   * Called on the EDT. The returned detection runs on the feedback thread and must not access the operation context.
+   *
+   * @return null if there is nothing to detect
+   */
+  protected Callable<IEditOperation> createDetection() {
+    return null;
+  }
+
+  /**
+   * Wraps the detection so that it returns the snapshot of the feedback, taken while the detection still holds the editor lock.
+   */
+  private Callable<FeedbackSnapshot> createFeedbackDetection() {
+    final Callable<IEditOperation> detection = createDetection();
+    if (detection == null)
+      return null;
+    final LayoutSpec layoutSpec = myLayoutSpecManager.getLayoutSpec();
+    return new Callable<FeedbackSnapshot>() {
+      @Override
+      public FeedbackSnapshot call() throws Exception {
+        return FeedbackSnapshot.create(detection.call(), layoutSpec);
+      }
+    };
+  }
+
+  /**
+   * Detects the edit operation in the background and paints it once it is available.
+   */
+  protected void requestFeedback() {
+    Callable<FeedbackSnapshot> detection = createFeedbackDetection();
+    if (detection == null)
+      return;
+    myLayoutSpecManager.getFeedbackPipeline().submit(detection, new FeedbackPipeline.IResultListener<FeedbackSnapshot>() {
+      @Override
+      public void onResult(FeedbackSnapshot feedback) {
+        if (myFeedbackPainter == null)
+          return;
+        myFeedback = feedback;
+        myFeedbackPainter.setFeedback(feedback);
+        myFeedbackPainter.repaint();
+      }
+    });
+  }
+
   @Override
   public void eraseFeedback() {
+    myLayoutSpecManager.getFeedbackPipeline().cancel();
     if (myFeedbackPainter != null) {
       FeedbackLayer layer = myContext.getArea().getFeedbackLayer();
       layer.remove(myFeedbackPainter);
@@ -62,16 +129,42 @@ class ALMLayoutOperation extends AbstractEditOperation {
       myTooltip.dispose();
       myTooltip = null;
     }
+    if (myRecording != null) {
+      writeRecording(myRecording);
+      myRecording = null;
+    }
+  }
+
+  private static void writeRecording(SessionRecording recording) {
+    if (recording.getEvents().isEmpty())
+      return;
+    File file = new File(ourRecordDir, "ale-session-" + System.currentTimeMillis() + ".bin");
+    try {
+      OutputStream outputStream = new FileOutputStream(file);
+      try {
+        recording.write(outputStream);
+      } finally {
+        outputStream.close();
+      }
+      LOG.info("ALE session recorded to " + file.getPath());
+    } catch (IOException e) {
+      LOG.warn("Failed to write the ALE session recording " + file.getPath(), e);
+    }
   }
 
   @Override
   public boolean canExecute() {
-    return myLayoutSpecManager.myLayoutEditor.canPerform();
+    return myFeedback.canPerform();
   }
 
   @Override
   public void execute() throws Exception {
-    if (!myLayoutSpecManager.myLayoutEditor.canPerform())
+    // the last feedback may be outdated or still be computed; detect the operation for the final mouse position
+    Callable<FeedbackSnapshot> detection = createFeedbackDetection();
+    if (detection != null)
+      myFeedback = myLayoutSpecManager.getFeedbackPipeline().computeNow(detection);
+
+    if (!myFeedback.canPerform())
       return;
 
     // super.execute creates, pastes or adds the item
@@ -84,16 +177,19 @@ class ALMLayoutOperation extends AbstractEditOperation {
     ApplicationManager.getApplication().runWriteAction(new Runnable() {
       @Override
       public void run() {
-        myLayoutSpecManager.myLayoutEditor.perform();
+        myLayoutSpecManager.perform();
         LayoutSpecXmlWriter xmlWriter = new LayoutSpecXmlWriter(myLayoutSpecManager);
         xmlWriter.write();
-        myLayoutSpecManager.invalidate();
       }
     });
+    LayoutSpecManager.dumpMetrics();
   }
 
+  /**
+   * @return the mouse position in model coordinates; the point is reused by the next call
+   */
   protected Point getModelMousePosition() {
     FeedbackLayer layer = myContext.getArea().getFeedbackLayer();
-    return LayoutSpecManager.toModel(layer, myLayoutSpecManager.getALMLayoutSpecs(), myContainer, myContext.getLocation());
+    return myLayoutSpecManager.toModel(layer, myContext.getLocation(), myModelMousePosition);
   }
 }
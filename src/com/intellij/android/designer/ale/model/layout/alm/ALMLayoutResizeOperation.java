@@ -26,6 +26,7 @@ import nz.ac.auckland.alm.XTab;
 import nz.ac.auckland.alm.YTab;
 
 import java.awt.*;
+import java.util.concurrent.Callable;
 
 
 public class ALMLayoutResizeOperation extends ALMLayoutOperation {
@@ -39,8 +40,13 @@ public class ALMLayoutResizeOperation extends ALMLayoutOperation {
   public void showFeedback() {
     super.showFeedback();
 
+    requestFeedback();
+  }
+
+  @Override
+  protected Callable<IEditOperation> createDetection() {
     RadViewComponent selection = RadViewComponent.getViewComponents(myComponents).get(0);
-    Area moveArea = myLayoutSpecManager.getAreaFor(selection);
+    final Area moveArea = myLayoutSpecManager.getAreaFor(selection);
 
     int direction = myContext.getResizeDirection();
     XTab movedXTab = null;
@@ -53,12 +59,19 @@ public class ALMLayoutResizeOperation extends ALMLayoutOperation {
       movedYTab = moveArea.getTop();
     else if ((direction & Position.SOUTH) != 0)
       movedYTab = moveArea.getBottom();
-    LayoutEditor layoutEditor = myLayoutSpecManager.getLayoutEditor();
+    final LayoutEditor layoutEditor = myLayoutSpecManager.getLayoutEditor();
     Point modelMouseLocation = getModelMousePosition();
-    IEditOperation editOperation = layoutEditor.detectResizeOperation(moveArea, movedXTab, movedYTab, modelMouseLocation.x,
-                                                                      modelMouseLocation.y);
-
-    myFeedbackPainter.setEditOperation(editOperation);
-    myFeedbackPainter.repaint();
+    final int mouseX = modelMouseLocation.x;
+    final int mouseY = modelMouseLocation.y;
+    final XTab resizedXTab = movedXTab;
+    final YTab resizedYTab = movedYTab;
+    if (myRecording != null)
+      myRecording.recordResize(moveArea, resizedXTab, resizedYTab, mouseX, mouseY);
+    return new Callable<IEditOperation>() {
+      @Override
+      public IEditOperation call() {
+        return layoutEditor.detectResizeOperation(moveArea, resizedXTab, resizedYTab, mouseX, mouseY);
+      }
+    };
   }
 }
@@ -20,23 +20,34 @@ import com.intellij.android.designer.designSurface.graphics.DesignerGraphics;
 import com.intellij.android.designer.designSurface.graphics.DrawingStyle;
 import com.intellij.android.designer.model.layout.relative.MultiLineTooltipManager;
 import com.intellij.designer.model.RadVisualComponent;
-import nz.ac.auckland.ale.*;
-import nz.ac.auckland.alm.*;
-import nz.ac.auckland.linsolve.Variable;
+import nz.ac.auckland.ale.IEditorMetrics;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
 
 
 class FeedbackPainter extends JComponent {
   final private LayoutSpecManager myLayoutSpecManager;
-  private IEditOperation myEditOperation;
+  private FeedbackSnapshot myFeedback = FeedbackSnapshot.NONE;
   private Rectangle myDragRect = new Rectangle();
   private MultiLineTooltipManager myTooltip;
 
-  final private Color TARGET_COLOR = Color.green;
-  final private Color CANDIDATE_COLOR = Color.blue;
+  static final private Color TARGET_COLOR = Color.green;
+  static final private Color CANDIDATE_COLOR = Color.blue;
+  // the styles are immutable, share them between all paints; indexed by the FeedbackSnapshot styles
+  static final private DrawingStyle[] STYLES = new DrawingStyle[3];
+  static {
+    STYLES[FeedbackSnapshot.TARGET_STYLE] = new DrawingStyle(TARGET_COLOR, new BasicStroke(1));
+    STYLES[FeedbackSnapshot.CANDIDATE_STYLE] = new DrawingStyle(CANDIDATE_COLOR, new BasicStroke(1));
+    STYLES[FeedbackSnapshot.MAX_AREA_STYLE] = new DrawingStyle(Color.gray, new BasicStroke(1));
+  }
+
+  // valid while painting, updated once per paint
+  private ModelViewTransform myTransform;
+  // scratch rect for the view coordinates, only used on the EDT while painting
+  final private Rectangle myViewRect = new Rectangle();
 
   public FeedbackPainter(LayoutSpecManager layoutSpecManager, MultiLineTooltipManager tooltip) {
     myLayoutSpecManager = layoutSpecManager;
@@ -47,8 +58,10 @@ class FeedbackPainter extends JComponent {
     myDragRect.setBounds(x, y, width, height);
   }
 
-  public void setEditOperation(IEditOperation editOperation) {
-    myEditOperation = editOperation;
+  public void setFeedback(@NotNull FeedbackSnapshot feedback) {
+    myFeedback = feedback;
+    if (feedback.updatesToolTip())
+      setToolTipText(feedback.getToolTip(), 0);
   }
 
   private void setToolTipText(String text, int line) {
@@ -67,120 +80,34 @@ class FeedbackPainter extends JComponent {
   protected void paintComponent(Graphics graphics) {
     super.paintComponent(graphics);
 
+    IEditorMetrics metrics = myLayoutSpecManager.getLayoutEditor().getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
     DesignerGraphics g = new DesignerGraphics(graphics, this);
+    myTransform = myLayoutSpecManager.getModelViewTransform(getParent());
     paint(g);
+    if (metrics.isEnabled())
+      metrics.record(IEditorMetrics.Phase.PAINT, null, System.nanoTime() - start);
   }
 
   private void paint(@NotNull DesignerGraphics graphics) {
     graphics.fillRect(myDragRect.x, myDragRect.y, myDragRect.width, myDragRect.height);
 
-    if (myEditOperation == null)
-      return;
-    IEditOperationFeedback editOperationFeedback = myEditOperation.getFeedback();
-
-    if (editOperationFeedback instanceof SwapOperation.Feedback)
-      paintSwapFeedback(graphics, (SwapOperation.Feedback)editOperationFeedback);
-    else if (editOperationFeedback instanceof ResizeOperation.Feedback)
-      paintResizeFeedback(graphics, (ResizeOperation.Feedback)editOperationFeedback);
-    else if (editOperationFeedback instanceof MoveOperation.Feedback)
-      paintMoveFeedback(graphics, (MoveOperation.Feedback)editOperationFeedback);
-    else if (editOperationFeedback instanceof MoveBetweenOperation.Feedback)
-      paintMoveBetweenFeedback(graphics, (MoveBetweenOperation.Feedback)editOperationFeedback);
-  }
-
-  private void paintSwapFeedback(DesignerGraphics graphics, SwapOperation.Feedback feedback) {
-    DrawingStyle resizeStyle = new DrawingStyle(TARGET_COLOR, new BasicStroke(1));
-    graphics.useStyle(resizeStyle);
-    paintArea(graphics, feedback.getTargetArea());
-  }
-
-  private void paintMoveBetweenFeedback(DesignerGraphics graphics, MoveBetweenOperation.Feedback feedback) {
-    DrawingStyle resizeStyle = new DrawingStyle(TARGET_COLOR, new BasicStroke(1));
-    graphics.useStyle(resizeStyle);
-
-    Area targetArea = feedback.getTargetArea();
-    paintArea(graphics, targetArea);
-    Variable tab = feedback.getInsertDirection().getTab(feedback.getTargetArea());
-    if (tab instanceof XTab)
-      paintTab(graphics, (XTab)tab);
-    else
-      paintTab(graphics, (YTab)tab);
-  }
-
-  private void paintMoveFeedback(@NotNull DesignerGraphics graphics, @NotNull MoveOperation.Feedback feedback) {
-    EmptySpace maxArea = feedback.getMaxArea();
-    if (maxArea == null)
-      return;
-
-    DrawingStyle candidateStyle = new DrawingStyle(Color.gray, new BasicStroke(1));
-    graphics.useStyle(candidateStyle);
-    paintArea(graphics, maxArea);
-    for (XTab tab : feedback.getMaxAreaXTabs())
-      paintTab(graphics, tab, maxArea.getTop().getValue(), maxArea.getBottom().getValue());
-    for (YTab tab : feedback.getMaxAreaYTabs())
-      paintTab(graphics, tab, maxArea.getLeft().getValue(), maxArea.getRight().getValue());
-
-    DrawingStyle targetStyle = new DrawingStyle(TARGET_COLOR, new BasicStroke(1));
-    graphics.useStyle(targetStyle);
-    AreaCandidate targetArea = feedback.getTargetArea();
-    paintAreaCandidate(graphics, targetArea);
-  }
-
-  private void paintResizeFeedback(@NotNull DesignerGraphics graphics, @NotNull ResizeOperation.Feedback feedback) {
-    DrawingStyle candidateStyle = new DrawingStyle(CANDIDATE_COLOR, new BasicStroke(1));
-    graphics.useStyle(candidateStyle);
-    for (XTab xTab : feedback.getXTabCandidates())
-      paintTab(graphics, xTab);
-    for (YTab yTab : feedback.getYTabCandidates())
-      paintTab(graphics, yTab);
-
-    DrawingStyle resizeStyle = new DrawingStyle(TARGET_COLOR, new BasicStroke(1));
-    graphics.useStyle(resizeStyle);
-    if (feedback.getTargetXTab() != null)
-      paintTab(graphics, feedback.getTargetXTab());
-    if (feedback.getTargetYTab() != null)
-      paintTab(graphics, feedback.getTargetYTab());
-
-    if (feedback.getDetachX() || feedback.getDetachY())
-      setToolTipText("detach", 0);
-    else
-      setToolTipText(null, 0);
-  }
-
-  private void paintArea(@NotNull DesignerGraphics graphics, @NotNull IArea area) {
-    Rectangle targetRect = myLayoutSpecManager.fromModel(getParent(), area.getRect());
-    graphics.drawRect(targetRect.x, targetRect.y, targetRect.width, targetRect.height);
-  }
-
-  private void paintAreaCandidate(@NotNull DesignerGraphics graphics, @NotNull AreaCandidate area) {
-    Rectangle areaView = myLayoutSpecManager.fromModel(getParent(), new Area.Rect((int)area.left.getValue(), (int)area.top.getValue(),
-                                                       (int)area.right.getValue(), (int)area.bottom.getValue()));
-    graphics.drawRect(areaView.x, areaView.y, areaView.width, areaView.height);
-  }
-
-  private void paintTab(@NotNull DesignerGraphics graphics, @NotNull XTab tab, double top, double bottom) {
-    Point start = myLayoutSpecManager.fromModel(getParent(), new Point((int)tab.getValue(), (int)top));
-    Point end = myLayoutSpecManager.fromModel(getParent(), new Point((int)tab.getValue(), (int)bottom));
-    graphics.drawLine(start.x, start.y, end.x, end.y);
-  }
-
-  private void paintTab(@NotNull DesignerGraphics graphics, @NotNull XTab tab) {
-    LayoutSpec layoutSpec = myLayoutSpecManager.getLayoutSpec();
-    double layoutTop = layoutSpec.getTop().getValue();
-    double layoutBottom = layoutSpec.getBottom().getValue();
-    paintTab(graphics, tab, layoutTop, layoutBottom);
-  }
-
-  private void paintTab(@NotNull DesignerGraphics graphics, @NotNull YTab tab, double left, double right) {
-    Point start = myLayoutSpecManager.fromModel(getParent(), new Point((int)left, (int)tab.getValue()));
-    Point end = myLayoutSpecManager.fromModel(getParent(), new Point((int)right, (int)tab.getValue()));
-    graphics.drawLine(start.x, start.y, end.x, end.y);
-  }
-
-  private void paintTab(@NotNull DesignerGraphics graphics, @NotNull YTab tab) {
-    LayoutSpec layoutSpec = myLayoutSpecManager.getLayoutSpec();
-    double layoutLeft = layoutSpec.getLeft().getValue();
-    double layoutRight = layoutSpec.getRight().getValue();
-    paintTab(graphics, tab, layoutLeft, layoutRight);
+    // the snapshot is immutable, it doesn't need the editor lock
+    List<FeedbackSnapshot.Shape> shapes = myFeedback.getShapes();
+    int style = -1;
+    for (int i = 0; i < shapes.size(); i++) {
+      FeedbackSnapshot.Shape shape = shapes.get(i);
+      if (shape.style != style) {
+        style = shape.style;
+        graphics.useStyle(STYLES[style]);
+      }
+      if (shape.isLine) {
+        graphics.drawLine(myTransform.toViewX(shape.x1), myTransform.toViewY(shape.y1), myTransform.toViewX(shape.x2),
+                          myTransform.toViewY(shape.y2));
+      } else {
+        Rectangle view = myTransform.toView(shape.x1, shape.y1, shape.x2, shape.y2, myViewRect);
+        graphics.drawRect(view.x, view.y, view.width, view.height);
+      }
+    }
   }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.android.designer.ale.model.layout.alm;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Runs the edit operation detection of a LayoutEditor on a background thread.
+ *
+ * All detections of a LayoutEditor run on the same single thread and hold the editor lock while they run; the detection changes
+ * the editor's data temporarily, e.g. to probe an insert. Everything else that changes the editor, e.g. performing an operation or
+ * rebinding the manager after a render, has to hold the editor lock too. A new request cancels the request that is still waiting
+ * in the queue; a running detection is finished but its result is only painted if no newer result has been painted yet.
+ *
+ * The detected operations are changed again by the next detection, so a detection returns what the EDT needs, e.g. a
+ * FeedbackSnapshot, computed while it still holds the lock.
+ */
+class FeedbackPipeline {
+  private static final Logger LOG = Logger.getInstance(FeedbackPipeline.class);
+
+  interface IResultListener<T> {
+    /**
+     * Called on the EDT.
+     */
+    void onResult(T result);
+  }
+
+  private final ThreadPoolExecutor myExecutor;
+  private final Object myEditorLock = new Object();
+  private final AtomicLong myLatestRequest = new AtomicLong();
+  // only accessed on the EDT
+  private long myLatestDelivered = 0;
+  private Future<?> myQueued;
+
+  public FeedbackPipeline() {
+    myExecutor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "ALE feedback");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    // don't keep the thread alive after the drag
+    myExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Queues a detection. Must be called on the EDT.
+   */
+  public <T> void submit(final Callable<T> detection, final IResultListener<T> listener) {
+    final long request = myLatestRequest.incrementAndGet();
+    cancelQueued();
+    myQueued = myExecutor.submit(new Runnable() {
+      @Override
+      public void run() {
+        if (request != myLatestRequest.get())
+          return;
+        final T result;
+        try {
+          result = detect(detection);
+        }
+        catch (Exception e) {
+          LOG.warn(e);
+          return;
+        }
+        ApplicationManager.getApplication().invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            if (request <= myLatestDelivered)
+              return;
+            myLatestDelivered = request;
+            listener.onResult(result);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * The lock that guards the LayoutEditor against concurrent changes. Held by running detections.
+   */
+  public Object getEditorLock() {
+    return myEditorLock;
+  }
+
+  private <T> T detect(Callable<T> detection) throws Exception {
+    synchronized (myEditorLock) {
+      return detection.call();
+    }
+  }
+
+  /**
+   * Drops all queued detections and results that have not been delivered yet. Must be called on the EDT.
+   */
+  public void cancel() {
+    // results of older requests are treated as already delivered
+    myLatestDelivered = myLatestRequest.incrementAndGet();
+    cancelQueued();
+  }
+
+  /**
+   * Drops all outstanding requests and runs the detection after the running detection has finished. Must be called on the EDT.
+   *
+   * @return the result of the detection
+   */
+  public <T> T computeNow(final Callable<T> detection) throws Exception {
+    cancel();
+    try {
+      return myExecutor.submit(new Callable<T>() {
+        @Override
+        public T call() throws Exception {
+          return detect(detection);
+        }
+      }).get();
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception)
+        throw (Exception)cause;
+      throw e;
+    }
+  }
+
+  private void cancelQueued() {
+    if (myQueued != null) {
+      myQueued.cancel(false);
+      myQueued = null;
+    }
+  }
+}
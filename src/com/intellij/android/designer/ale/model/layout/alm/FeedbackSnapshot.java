@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.android.designer.ale.model.layout.alm;
+
+import nz.ac.auckland.ale.*;
+import nz.ac.auckland.alm.*;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The feedback of a detected edit operation, in model coordinates.
+ *
+ * The detection keeps changing the operations it caches and probes the layout in place, so the EDT must not read an operation or
+ * the LayoutSpec while a detection may run. The snapshot is taken on the feedback thread while the editor lock is held and is only
+ * read afterwards; it is immutable.
+ */
+class FeedbackSnapshot {
+  static final int TARGET_STYLE = 0;
+  static final int CANDIDATE_STYLE = 1;
+  static final int MAX_AREA_STYLE = 2;
+
+  static class Shape {
+    final int style;
+    // a line from (x1, y1) to (x2, y2), otherwise the rect (x1, y1, x2, y2)
+    final boolean isLine;
+    final double x1;
+    final double y1;
+    final double x2;
+    final double y2;
+
+    Shape(int style, boolean isLine, double x1, double y1, double x2, double y2) {
+      this.style = style;
+      this.isLine = isLine;
+      this.x1 = x1;
+      this.y1 = y1;
+      this.x2 = x2;
+      this.y2 = y2;
+    }
+  }
+
+  static final FeedbackSnapshot NONE = new FeedbackSnapshot(false, Collections.<Shape>emptyList(), false, null);
+
+  private final boolean myCanPerform;
+  private final List<Shape> myShapes;
+  private final boolean myUpdatesToolTip;
+  private final String myToolTip;
+
+  private FeedbackSnapshot(boolean canPerform, List<Shape> shapes, boolean updatesToolTip, String toolTip) {
+    myCanPerform = canPerform;
+    myShapes = shapes;
+    myUpdatesToolTip = updatesToolTip;
+    myToolTip = toolTip;
+  }
+
+  public boolean canPerform() {
+    return myCanPerform;
+  }
+
+  /**
+   * @return the shapes in paint order
+   */
+  public List<Shape> getShapes() {
+    return myShapes;
+  }
+
+  /**
+   * @return false if the tooltip is left as it is
+   */
+  public boolean updatesToolTip() {
+    return myUpdatesToolTip;
+  }
+
+  /**
+   * @return the text of the first tooltip line, null to hide it
+   */
+  public String getToolTip() {
+    return myToolTip;
+  }
+
+  /**
+   * Must be called with the editor lock held.
+   */
+  static FeedbackSnapshot create(IEditOperation operation, LayoutSpec layoutSpec) {
+    if (operation == null)
+      return NONE;
+    Builder builder = new Builder(layoutSpec);
+    IEditOperationFeedback feedback = operation.getFeedback();
+    if (feedback instanceof SwapOperation.Feedback)
+      builder.addSwapFeedback((SwapOperation.Feedback)feedback);
+    else if (feedback instanceof ResizeOperation.Feedback)
+      builder.addResizeFeedback((ResizeOperation.Feedback)feedback);
+    else if (feedback instanceof MoveOperation.Feedback)
+      builder.addMoveFeedback((MoveOperation.Feedback)feedback);
+    else if (feedback instanceof MoveBetweenOperation.Feedback)
+      builder.addMoveBetweenFeedback((MoveBetweenOperation.Feedback)feedback);
+    return new FeedbackSnapshot(operation.canPerform(), builder.myShapes, builder.myUpdatesToolTip, builder.myToolTip);
+  }
+
+  static private class Builder {
+    final LayoutSpec myLayoutSpec;
+    final List<Shape> myShapes = new ArrayList<Shape>();
+    boolean myUpdatesToolTip = false;
+    String myToolTip;
+
+    Builder(LayoutSpec layoutSpec) {
+      myLayoutSpec = layoutSpec;
+    }
+
+    void addSwapFeedback(SwapOperation.Feedback feedback) {
+      addArea(TARGET_STYLE, feedback.getTargetArea());
+    }
+
+    void addMoveBetweenFeedback(MoveBetweenOperation.Feedback feedback) {
+      Area targetArea = feedback.getTargetArea();
+      addArea(TARGET_STYLE, targetArea);
+      Variable tab = feedback.getInsertDirection().getTab(targetArea);
+      if (tab instanceof XTab)
+        addTab(TARGET_STYLE, (XTab)tab);
+      else
+        addTab(TARGET_STYLE, (YTab)tab);
+    }
+
+    void addMoveFeedback(MoveOperation.Feedback feedback) {
+      EmptySpace maxArea = feedback.getMaxArea();
+      if (maxArea == null)
+        return;
+
+      addArea(MAX_AREA_STYLE, maxArea);
+      addXTabs(MAX_AREA_STYLE, feedback.getMaxAreaXTabs(), maxArea.getTop().getValue(), maxArea.getBottom().getValue());
+      addYTabs(MAX_AREA_STYLE, feedback.getMaxAreaYTabs(), maxArea.getLeft().getValue(), maxArea.getRight().getValue());
+
+      AreaCandidate targetArea = feedback.getTargetArea();
+      myShapes.add(new Shape(TARGET_STYLE, false, (int)targetArea.left.getValue(), (int)targetArea.top.getValue(),
+                             (int)targetArea.right.getValue(), (int)targetArea.bottom.getValue()));
+    }
+
+    void addResizeFeedback(ResizeOperation.Feedback feedback) {
+      addXTabs(CANDIDATE_STYLE, feedback.getXTabCandidates(), myLayoutSpec.getTop().getValue(),
+               myLayoutSpec.getBottom().getValue());
+      addYTabs(CANDIDATE_STYLE, feedback.getYTabCandidates(), myLayoutSpec.getLeft().getValue(),
+               myLayoutSpec.getRight().getValue());
+
+      if (feedback.getTargetXTab() != null)
+        addTab(TARGET_STYLE, feedback.getTargetXTab());
+      if (feedback.getTargetYTab() != null)
+        addTab(TARGET_STYLE, feedback.getTargetYTab());
+
+      myUpdatesToolTip = true;
+      if (feedback.getDetachX() || feedback.getDetachY())
+        myToolTip = "detach";
+    }
+
+    private void addArea(int style, IArea area) {
+      myShapes.add(new Shape(style, false, area.getLeft().getValue(), area.getTop().getValue(), area.getRight().getValue(),
+                             area.getBottom().getValue()));
+    }
+
+    private void addXTabs(int style, List<XTab> tabs, double top, double bottom) {
+      if (tabs == null)
+        return;
+      for (int i = 0; i < tabs.size(); i++) {
+        double x = tabs.get(i).getValue();
+        myShapes.add(new Shape(style, true, x, (int)top, x, (int)bottom));
+      }
+    }
+
+    private void addYTabs(int style, List<YTab> tabs, double left, double right) {
+      if (tabs == null)
+        return;
+      for (int i = 0; i < tabs.size(); i++) {
+        double y = tabs.get(i).getValue();
+        myShapes.add(new Shape(style, true, (int)left, y, (int)right, y));
+      }
+    }
+
+    private void addTab(int style, XTab tab) {
+      int x = (int)tab.getValue();
+      myShapes.add(new Shape(style, true, x, (int)myLayoutSpec.getTop().getValue(), x, (int)myLayoutSpec.getBottom().getValue()));
+    }
+
+    private void addTab(int style, YTab tab) {
+      int y = (int)tab.getValue();
+      myShapes.add(new Shape(style, true, (int)myLayoutSpec.getLeft().getValue(), y, (int)myLayoutSpec.getRight().getValue(), y));
+    }
+  }
+}
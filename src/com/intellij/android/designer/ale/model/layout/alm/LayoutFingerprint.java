@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.android.designer.ale.model.layout.alm;
+
+import nz.ac.auckland.alm.Area;
+import nz.ac.auckland.alm.IALMLayoutSpecs;
+import nz.ac.auckland.alm.IArea;
+import nz.ac.auckland.linsolve.Constraint;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+
+/**
+ * Structural fingerprint of IALMLayoutSpecs: the number of areas, the tab topology in the order of the areas and the custom
+ * constraints. Tab values and view objects are not part of it, so layoutlib renders of an unchanged layout have the same
+ * fingerprint and area i of the one specs corresponds to area i of the other.
+ *
+ * Tabs are numbered in the order they are first used, thus the fingerprint doesn't depend on the tab objects. The custom
+ * constraints are compared by their text; constraints that don't print their variables never match, which only costs a rebuild.
+ */
+class LayoutFingerprint {
+  final private int myAreaCount;
+  final private int myXTabCount;
+  final private int myYTabCount;
+  final private int myConstraintCount;
+  final private long myHash;
+
+  LayoutFingerprint(IALMLayoutSpecs almLayoutSpecs) {
+    Map<Variable, Integer> xTabs = new IdentityHashMap<Variable, Integer>();
+    Map<Variable, Integer> yTabs = new IdentityHashMap<Variable, Integer>();
+    long hash = 17;
+    hash = mix(hash, getId(xTabs, almLayoutSpecs.getLeftTab()));
+    hash = mix(hash, getId(yTabs, almLayoutSpecs.getTopTab()));
+    hash = mix(hash, getId(xTabs, almLayoutSpecs.getRightTab()));
+    hash = mix(hash, getId(yTabs, almLayoutSpecs.getBottomTab()));
+    for (IArea area : almLayoutSpecs.getAreas()) {
+      hash = mix(hash, area instanceof Area ? 1 : 2);
+      hash = mix(hash, getId(xTabs, area.getLeft()));
+      hash = mix(hash, getId(yTabs, area.getTop()));
+      hash = mix(hash, getId(xTabs, area.getRight()));
+      hash = mix(hash, getId(yTabs, area.getBottom()));
+    }
+    for (Constraint constraint : almLayoutSpecs.getCustomConstraints())
+      hash = mix(hash, constraint.toString().hashCode());
+
+    myAreaCount = almLayoutSpecs.getAreas().size();
+    myXTabCount = xTabs.size();
+    myYTabCount = yTabs.size();
+    myConstraintCount = almLayoutSpecs.getCustomConstraints().size();
+    myHash = hash;
+  }
+
+  static private int getId(Map<Variable, Integer> ids, Variable tab) {
+    Integer id = ids.get(tab);
+    if (id == null) {
+      id = ids.size();
+      ids.put(tab, id);
+    }
+    return id;
+  }
+
+  static private long mix(long hash, int value) {
+    return (hash ^ value) * 0x100000001b3L;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof LayoutFingerprint))
+      return false;
+    LayoutFingerprint fingerprint = (LayoutFingerprint)o;
+    return myAreaCount == fingerprint.myAreaCount && myXTabCount == fingerprint.myXTabCount
+           && myYTabCount == fingerprint.myYTabCount && myConstraintCount == fingerprint.myConstraintCount
+           && myHash == fingerprint.myHash;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int)(myHash ^ (myHash >>> 32));
+  }
+}
@@ -18,23 +18,48 @@ package com.intellij.android.designer.ale.model.layout.alm;
 import com.android.ide.common.rendering.api.ViewInfo;
 import com.intellij.android.designer.model.RadViewComponent;
 import com.intellij.designer.model.RadComponent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.xml.XmlTag;
+import nz.ac.auckland.ale.IEditOperation;
 import nz.ac.auckland.ale.LayoutEditor;
+import nz.ac.auckland.ale.RecordingEditorMetrics;
 import nz.ac.auckland.alm.*;
+import nz.ac.auckland.linsolve.Variable;
 
 import java.awt.*;
-import java.util.HashMap;
+import java.util.*;
 import java.util.List;
-import java.util.Map;
 
 
 class LayoutSpecManager {
+  private static final Logger LOG = Logger.getInstance(LayoutSpecManager.class);
+  // phase timings of all layout editors, only recorded if the ale.metrics system property is set
+  private static final RecordingEditorMetrics ourMetrics = Boolean.getBoolean("ale.metrics") ? new RecordingEditorMetrics() : null;
+
+  interface IEditScript {
+    /**
+     * Detects and performs the edit operations, e.g. with LayoutEditor.perform(IEditOperation).
+     */
+    void run(LayoutEditor layoutEditor);
+  }
+
   boolean myIsValid = true;
   final RadComponent myLayoutContainer;
-  final IALMLayoutSpecs myALMLayoutSpecs;
+  IALMLayoutSpecs myALMLayoutSpecs;
+  // number of custom constraints of myALMLayoutSpecs, they are not edited
+  final int myCustomConstraintCount;
+  // structure of myALMLayoutSpecs and the editor revision the manager has been bound to it at
+  private LayoutFingerprint myFingerprint;
+  private int myBoundRevision;
   final LayoutSpec myLayoutSpec;
   final LayoutEditor myLayoutEditor;
   final Map<RadComponent, Area> myRadViewToAreaMap = new HashMap<RadComponent, Area>();
   final Map<Area, RadComponent> myAreaToRadViewMap = new HashMap<Area, RadComponent>();
+  // areas of myALMLayoutSpecs to their clones in myLayoutSpec
+  final Map<IArea, Area> myOrgToClonedAreaMap = new IdentityHashMap<IArea, Area>();
+  private FeedbackPipeline myFeedbackPipeline;
+  // left, top, right and bottom of each empty space of myLayoutSpec; replaced with the editor lock held whenever the layout changes
+  private volatile double[] myEmptySpaceBounds;
 
   private XTab getTab(Map<XTab, XTab> oldToCloneMap, XTab oldTab) {
     XTab tab = oldToCloneMap.get(oldTab);
@@ -68,10 +93,19 @@ class LayoutSpecManager {
     myIsValid = true;
     myLayoutContainer = layout;
     myALMLayoutSpecs = almLayoutSpecs;
+    myCustomConstraintCount = almLayoutSpecs.getCustomConstraints().size();
     myLayoutSpec = LayoutSpec.clone(almLayoutSpecs.getAreas(), almLayoutSpecs.getCustomConstraints(), almLayoutSpecs.getLeftTab(),
                                     almLayoutSpecs.getTopTab(), almLayoutSpecs.getRightTab(), almLayoutSpecs.getBottomTab());
     myRadViewToAreaMap.clear();
     myAreaToRadViewMap.clear();
+    // LayoutSpec.clone keeps the order of the areas
+    List<IArea> orgAreas = almLayoutSpecs.getAreas();
+    List<IArea> clonedAreas = myLayoutSpec.getAreas();
+    for (int i = 0; i < orgAreas.size(); i++) {
+      IArea clone = clonedAreas.get(i);
+      if (clone instanceof Area)
+        myOrgToClonedAreaMap.put(orgAreas.get(i), (Area)clone);
+    }
 
     for (RadComponent child : layout.getChildren()) {
       RadViewComponent viewComponent = (RadViewComponent)child;
@@ -87,12 +121,245 @@ class LayoutSpecManager {
     }
 
     myLayoutEditor = new LayoutEditor(myLayoutSpec);
-    float view = layout.getBounds().width;
-    float model = (float)(almLayoutSpecs.getRightTab().getValue() - almLayoutSpecs.getLeftTab().getValue());
-    myLayoutEditor.setModelViewScale(view / model);
+    updateModelViewScale(getModelViewTransform(myLayoutContainer));
     myLayoutEditor.setTabWidthView(8);
     myLayoutEditor.setDetachThresholdView(80);
     myLayoutEditor.setSnapView(20);
+    if (ourMetrics != null)
+      myLayoutEditor.setMetrics(ourMetrics);
+    myFingerprint = new LayoutFingerprint(almLayoutSpecs);
+    myBoundRevision = myLayoutEditor.getRevision();
+    updateEmptySpaceBounds();
+  }
+
+  /**
+   * Pushes the view / model scale of the transform, i.e. including the zoom, into the layout editor. The editor rescales its
+   * thresholds, so zooming doesn't need a new manager.
+   */
+  private void updateModelViewScale(ModelViewTransform transform) {
+    float view = (float)(transform.getScaleX() * myLayoutContainer.getBounds().width);
+    float model = (float)(myALMLayoutSpecs.getRightTab().getValue() - myALMLayoutSpecs.getLeftTab().getValue());
+    float scale = view / model;
+    if (scale != myLayoutEditor.getModelViewScale())
+      myLayoutEditor.setModelViewScale(scale);
+  }
+
+  /**
+   * Binds the manager to new IALMLayoutSpecs of the layout, e.g. when the layout has been rendered again after an edit. The edit
+   * has already been applied to the cloned LayoutSpec, so the manager can be kept if the new specs have the same structure: every
+   * child has an area, the areas use the same tabs as their clones and the custom constraints are unchanged.
+   *
+   * The RadComponents may have been recreated by the render; they are matched by their xml tag. If only the tab values differ the
+   * values are copied into the cloned LayoutSpec and the LayoutEditor is reloaded.
+   *
+   * Must be called with the editor lock of the feedback pipeline held, a detection may be running.
+   *
+   * @param fingerprint the fingerprint of the new specs
+   * @return false if the structure differs or empty spaces can't be updated, then the manager has to be rebuilt
+   */
+  public boolean rebind(IALMLayoutSpecs almLayoutSpecs, LayoutFingerprint fingerprint) {
+    if (!myIsValid)
+      return false;
+    if (almLayoutSpecs.getCustomConstraints().size() != myCustomConstraintCount)
+      return false;
+    List<RadViewComponent> children = getChildren();
+    if (children.size() != myAreaToRadViewMap.size())
+      return false;
+
+    Map<XmlTag, Area> tagToAreaMap = new HashMap<XmlTag, Area>();
+    for (Map.Entry<RadComponent, Area> entry : myRadViewToAreaMap.entrySet())
+      tagToAreaMap.put(((RadViewComponent)entry.getKey()).getTag(), entry.getValue());
+
+    // the tabs of the new specs have to map one to one to the cloned tabs
+    Map<Variable, Variable> orgToCloneMap = new IdentityHashMap<Variable, Variable>();
+    Map<Variable, Variable> cloneToOrgMap = new IdentityHashMap<Variable, Variable>();
+    if (!matchTabs(orgToCloneMap, cloneToOrgMap, almLayoutSpecs.getLeftTab(), myLayoutSpec.getLeft())
+        || !matchTabs(orgToCloneMap, cloneToOrgMap, almLayoutSpecs.getTopTab(), myLayoutSpec.getTop())
+        || !matchTabs(orgToCloneMap, cloneToOrgMap, almLayoutSpecs.getRightTab(), myLayoutSpec.getRight())
+        || !matchTabs(orgToCloneMap, cloneToOrgMap, almLayoutSpecs.getBottomTab(), myLayoutSpec.getBottom()))
+      return false;
+    Map<RadComponent, Area> radViewToAreaMap = new HashMap<RadComponent, Area>();
+    Map<Area, RadComponent> areaToRadViewMap = new HashMap<Area, RadComponent>();
+    Map<IArea, Area> orgToClonedAreaMap = new IdentityHashMap<IArea, Area>();
+    for (RadViewComponent child : children) {
+      ViewInfo viewInfo = child.getViewInfo();
+      if (viewInfo == null)
+        return false;
+      Area orgArea = almLayoutSpecs.getArea(viewInfo.getViewObject());
+      Area clone = myRadViewToAreaMap.get(child);
+      if (clone == null)
+        clone = tagToAreaMap.get(child.getTag());
+      if (orgArea == null || clone == null || areaToRadViewMap.containsKey(clone))
+        return false;
+      if (!matchTabs(orgToCloneMap, cloneToOrgMap, orgArea.getLeft(), clone.getLeft())
+          || !matchTabs(orgToCloneMap, cloneToOrgMap, orgArea.getTop(), clone.getTop())
+          || !matchTabs(orgToCloneMap, cloneToOrgMap, orgArea.getRight(), clone.getRight())
+          || !matchTabs(orgToCloneMap, cloneToOrgMap, orgArea.getBottom(), clone.getBottom()))
+        return false;
+      radViewToAreaMap.put(child, clone);
+      areaToRadViewMap.put(clone, child);
+      orgToClonedAreaMap.put(orgArea, clone);
+    }
+    if (!canBind(orgToCloneMap))
+      return false;
+
+    myRadViewToAreaMap.clear();
+    myRadViewToAreaMap.putAll(radViewToAreaMap);
+    myAreaToRadViewMap.clear();
+    myAreaToRadViewMap.putAll(areaToRadViewMap);
+    myOrgToClonedAreaMap.clear();
+    myOrgToClonedAreaMap.putAll(orgToClonedAreaMap);
+    bind(almLayoutSpecs, fingerprint, orgToCloneMap);
+    return true;
+  }
+
+  /**
+   * Binds the manager to new IALMLayoutSpecs from a render of the unchanged layout, e.g. after a resize of the designer. This is
+   * the case if the layout hasn't been edited since the manager has been bound to its current specs and the new specs have the
+   * same fingerprint. Then the areas of the old and new specs correspond by their index and nothing has to be matched.
+   *
+   * Must be called with the editor lock of the feedback pipeline held.
+   *
+   * @param fingerprint the fingerprint of the new specs
+   * @return false if the fast path doesn't apply, rebind() may still succeed
+   */
+  public boolean rebindRender(IALMLayoutSpecs almLayoutSpecs, LayoutFingerprint fingerprint) {
+    if (!myIsValid || myLayoutEditor.getRevision() != myBoundRevision || !fingerprint.equals(myFingerprint))
+      return false;
+    // recreated RadComponents have to be matched by rebind()
+    List<RadViewComponent> children = getChildren();
+    if (children.size() != myRadViewToAreaMap.size())
+      return false;
+    for (RadViewComponent child : children) {
+      if (!myRadViewToAreaMap.containsKey(child))
+        return false;
+    }
+
+    List<IArea> oldAreas = myALMLayoutSpecs.getAreas();
+    List<IArea> newAreas = almLayoutSpecs.getAreas();
+    Map<Variable, Variable> orgToCloneMap = new IdentityHashMap<Variable, Variable>();
+    orgToCloneMap.put(almLayoutSpecs.getLeftTab(), myLayoutSpec.getLeft());
+    orgToCloneMap.put(almLayoutSpecs.getTopTab(), myLayoutSpec.getTop());
+    orgToCloneMap.put(almLayoutSpecs.getRightTab(), myLayoutSpec.getRight());
+    orgToCloneMap.put(almLayoutSpecs.getBottomTab(), myLayoutSpec.getBottom());
+    Map<IArea, Area> orgToClonedAreaMap = new IdentityHashMap<IArea, Area>();
+    for (int i = 0; i < newAreas.size(); i++) {
+      Area clone = myOrgToClonedAreaMap.get(oldAreas.get(i));
+      if (clone == null)
+        continue;
+      IArea orgArea = newAreas.get(i);
+      orgToClonedAreaMap.put(orgArea, clone);
+      orgToCloneMap.put(orgArea.getLeft(), clone.getLeft());
+      orgToCloneMap.put(orgArea.getTop(), clone.getTop());
+      orgToCloneMap.put(orgArea.getRight(), clone.getRight());
+      orgToCloneMap.put(orgArea.getBottom(), clone.getBottom());
+    }
+    if (!canBind(orgToCloneMap))
+      return false;
+
+    myOrgToClonedAreaMap.clear();
+    myOrgToClonedAreaMap.putAll(orgToClonedAreaMap);
+    bind(almLayoutSpecs, fingerprint, orgToCloneMap);
+    return true;
+  }
+
+  /**
+   * Checks that bind() leaves the cloned LayoutSpec consistent. Tabs that are only used by empty spaces have no counterpart in the
+   * new specs; they would keep their old values and the empty spaces wouldn't tile the layout any more if other values changed.
+   */
+  private boolean canBind(Map<Variable, Variable> orgToCloneMap) {
+    boolean valuesChanged = false;
+    for (Map.Entry<Variable, Variable> entry : orgToCloneMap.entrySet()) {
+      if (Math.abs(entry.getValue().getValue() - entry.getKey().getValue()) > 0.5) {
+        valuesChanged = true;
+        break;
+      }
+    }
+    if (!valuesChanged)
+      return true;
+    Set<Variable> boundTabs = Collections.newSetFromMap(new IdentityHashMap<Variable, Boolean>());
+    boundTabs.addAll(orgToCloneMap.values());
+    for (IArea area : myLayoutSpec.getAreas()) {
+      if (!boundTabs.contains(area.getLeft()) || !boundTabs.contains(area.getTop()) || !boundTabs.contains(area.getRight())
+          || !boundTabs.contains(area.getBottom()))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Takes the tab values of the new specs over. The LayoutEditor, and thus its empty spaces, is only reloaded if a value changed.
+   */
+  private void bind(IALMLayoutSpecs almLayoutSpecs, LayoutFingerprint fingerprint, Map<Variable, Variable> orgToCloneMap) {
+    myALMLayoutSpecs = almLayoutSpecs;
+    boolean valuesChanged = false;
+    for (Map.Entry<Variable, Variable> entry : orgToCloneMap.entrySet()) {
+      double value = entry.getKey().getValue();
+      Variable clone = entry.getValue();
+      if (Math.abs(clone.getValue() - value) > 0.5) {
+        clone.setValue(value);
+        valuesChanged = true;
+      }
+    }
+    if (valuesChanged)
+      myLayoutEditor.reload();
+    myFingerprint = fingerprint;
+    myBoundRevision = myLayoutEditor.getRevision();
+    updateModelViewScale(getModelViewTransform(myLayoutContainer));
+    updateEmptySpaceBounds();
+  }
+
+  /**
+   * Takes the snapshot of the empty spaces that the decorator paints. The detection probes the LayoutSpec in place, so the EDT
+   * can't read it while a detection may run. Must be called with the editor lock held, or before the manager is published.
+   */
+  void updateEmptySpaceBounds() {
+    List<IArea> areas = myLayoutSpec.getAreas();
+    int count = 0;
+    for (IArea area : areas) {
+      if (area instanceof EmptySpace)
+        count++;
+    }
+    double[] bounds = new double[4 * count];
+    int i = 0;
+    for (IArea area : areas) {
+      if (!(area instanceof EmptySpace))
+        continue;
+      bounds[i++] = area.getLeft().getValue();
+      bounds[i++] = area.getTop().getValue();
+      bounds[i++] = area.getRight().getValue();
+      bounds[i++] = area.getBottom().getValue();
+    }
+    myEmptySpaceBounds = bounds;
+  }
+
+  /**
+   * @return left, top, right and bottom of each empty space as they have been after the last change of the layout; can be read on
+   * the EDT without the editor lock and must not be modified
+   */
+  public double[] getEmptySpaceBounds() {
+    return myEmptySpaceBounds;
+  }
+
+  static private boolean matchTabs(Map<Variable, Variable> orgToCloneMap, Map<Variable, Variable> cloneToOrgMap, Variable orgTab,
+                                   Variable cloneTab) {
+    Variable mappedClone = orgToCloneMap.get(orgTab);
+    if (mappedClone != null)
+      return mappedClone == cloneTab;
+    if (cloneToOrgMap.containsKey(cloneTab))
+      return false;
+    orgToCloneMap.put(orgTab, cloneTab);
+    cloneToOrgMap.put(cloneTab, orgTab);
+    return true;
+  }
+
+  /**
+   * Logs the recorded phase timings, if any.
+   */
+  static public void dumpMetrics() {
+    if (ourMetrics == null)
+      return;
+    LOG.info("ALE editor metrics (us):\n" + ourMetrics.dump());
   }
 
   public void addComponent(Area addedArea, RadComponent insertComponent) {
@@ -100,6 +367,12 @@ class LayoutSpecManager {
     myAreaToRadViewMap.put(addedArea, insertComponent);
   }
 
+  public void removeComponent(RadComponent removedComponent) {
+    Area area = myRadViewToAreaMap.remove(removedComponent);
+    if (area != null)
+      myAreaToRadViewMap.remove(area);
+  }
+
   public Area readOrgAreaFromRadComponent(RadViewComponent viewComponent) {
     ViewInfo viewInfo = viewComponent.getViewInfo();
     if (viewInfo == null)
@@ -108,14 +381,57 @@ class LayoutSpecManager {
   }
 
   public Area getOrgToClonedArea(Area orgArea) {
-    List<IArea> areas = myALMLayoutSpecs.getAreas();
-    return (Area)myLayoutSpec.getAreas().get(areas.indexOf(orgArea));
+    return myOrgToClonedAreaMap.get(orgArea);
   }
 
   public boolean isValid() {
     return myIsValid;
   }
 
+  /**
+   * Performs the current edit operation of the editor, see LayoutEditor.perform().
+   */
+  public void perform() {
+    synchronized (getFeedbackPipeline().getEditorLock()) {
+      myLayoutEditor.perform();
+      updateEmptySpaceBounds();
+    }
+  }
+
+  public void perform(IEditOperation operation) {
+    synchronized (getFeedbackPipeline().getEditorLock()) {
+      myLayoutEditor.perform(operation);
+      updateEmptySpaceBounds();
+    }
+  }
+
+  /**
+   * Runs the script in a LayoutEditor transaction and writes the xml once after all operations have been performed. If the script
+   * fails the transaction is rolled back and the xml is not touched. Must be called in a write action.
+   */
+  public void performTransaction(IEditScript script) {
+    synchronized (getFeedbackPipeline().getEditorLock()) {
+      myLayoutEditor.beginTransaction();
+      try {
+        try {
+          script.run(myLayoutEditor);
+        }
+        catch (RuntimeException e) {
+          if (myLayoutEditor.isInTransaction())
+            myLayoutEditor.rollbackTransaction();
+          throw e;
+        }
+        myLayoutEditor.commitTransaction();
+      }
+      finally {
+        updateEmptySpaceBounds();
+      }
+    }
+
+    LayoutSpecXmlWriter xmlWriter = new LayoutSpecXmlWriter(this);
+    xmlWriter.write();
+  }
+
   public void invalidate() {
     myIsValid = false;
   }
@@ -140,6 +456,15 @@ class LayoutSpecManager {
     return myLayoutEditor;
   }
 
+  /**
+   * All detections on the layout editor have to go through the pipeline so that they don't run concurrently.
+   */
+  public FeedbackPipeline getFeedbackPipeline() {
+    if (myFeedbackPipeline == null)
+      myFeedbackPipeline = new FeedbackPipeline();
+    return myFeedbackPipeline;
+  }
+
   public Map<RadComponent, Area> getRadViewToAreaMap() {
     return myRadViewToAreaMap;
   }
@@ -152,74 +477,66 @@ class LayoutSpecManager {
     return myALMLayoutSpecs;
   }
 
-  public Rectangle fromModel(Component layer, Area.Rect rect) {
-    return fromModel(layer, myALMLayoutSpecs, myLayoutContainer, rect);
+  /**
+   * @return the transform of the layout, updated for the layer
+   */
+  public ModelViewTransform getModelViewTransform(Component layer) {
+    ModelViewTransform transform = getModelViewTransform(layer, myALMLayoutSpecs, myLayoutContainer);
+    updateModelViewScale(transform);
+    return transform;
   }
 
-  public Point fromModel(Component layer, Point point) {
-    return fromModel(layer, myALMLayoutSpecs, myLayoutContainer, point);
+  public Rectangle fromModel(Component layer, Area.Rect rect, Rectangle result) {
+    return getModelViewTransform(layer).toView(rect, result);
   }
 
-  public Rectangle toModel(Component layer, Rectangle rect) {
-    return toModel(layer, myALMLayoutSpecs, myLayoutContainer, rect);
+  public Point fromModel(Component layer, Point point, Point result) {
+    return getModelViewTransform(layer).toView(point, result);
   }
 
-  public Point toModel(Component layer, Point point) {
-    return toModel(layer, myALMLayoutSpecs, myLayoutContainer, point);
+  public Rectangle toModel(Component layer, Rectangle rect, Rectangle result) {
+    return getModelViewTransform(layer).toModel(rect, result);
   }
 
-  static public Rectangle fromModel(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout, Area.Rect rect) {
-    Rectangle areaBounds = new Rectangle(Math.round(rect.left), Math.round(rect.top), Math.round(rect.getWidth()),
-                                         Math.round(rect.getHeight()));
-    Rectangle aleLayoutBounds = new Rectangle((int)almLayoutSpecs.getLeftTab().getValue(), (int)almLayoutSpecs.getTopTab().getValue(),
-                                              (int)(almLayoutSpecs.getRightTab().getValue() - almLayoutSpecs.getLeftTab().getValue()),
-                                              (int)(almLayoutSpecs.getBottomTab().getValue() - almLayoutSpecs.getTopTab().getValue()));
-    final Rectangle layoutBounds = layout.fromModel(layer, layout.getBounds());
-    aleLayoutBounds = layout.fromModel(layer, aleLayoutBounds);
-    areaBounds = layout.fromModel(layer, areaBounds);
-    double offsetX = layoutBounds.getX() - aleLayoutBounds.getX();
-    double offsetY = layoutBounds.getY() - aleLayoutBounds.getY();
-    areaBounds.translate((int)offsetX, (int)offsetY);
-    return areaBounds;
+  public Point toModel(Component layer, Point point, Point result) {
+    return getModelViewTransform(layer).toModel(point, result);
   }
 
-  static public Point fromModel(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout, Point point) {
-    Rectangle aleLayoutBounds = new Rectangle((int)almLayoutSpecs.getLeftTab().getValue(), (int)almLayoutSpecs.getTopTab().getValue(),
-                                              (int)(almLayoutSpecs.getRightTab().getValue() - almLayoutSpecs.getLeftTab().getValue()),
-                                              (int)(almLayoutSpecs.getBottomTab().getValue() - almLayoutSpecs.getTopTab().getValue()));
-    final Rectangle layoutBounds = layout.fromModel(layer, layout.getBounds());
-    aleLayoutBounds = layout.fromModel(layer, aleLayoutBounds);
-    Point pointView = layout.fromModel(layer, point);
-    double offsetX = layoutBounds.getX() - aleLayoutBounds.getX();
-    double offsetY = layoutBounds.getY() - aleLayoutBounds.getY();
-    pointView.translate((int)offsetX, (int)offsetY);
-    return pointView;
+  /**
+   * Every ALM container keeps one transform, see RadALMLayout. Callers that convert many coordinates should get the transform once
+   * and use it directly.
+   */
+  static public ModelViewTransform getModelViewTransform(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout) {
+    ModelViewTransform transform = getModelViewTransform(layout);
+    transform.update(layer, almLayoutSpecs, layout);
+    return transform;
   }
 
-  static public Rectangle toModel(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout, Rectangle rect) {
-    Rectangle aleLayoutBounds = new Rectangle((int)almLayoutSpecs.getLeftTab().getValue(), (int)almLayoutSpecs.getTopTab().getValue(),
-                                              (int)(almLayoutSpecs.getRightTab().getValue() - almLayoutSpecs.getLeftTab().getValue()),
-                                              (int)(almLayoutSpecs.getBottomTab().getValue() - almLayoutSpecs.getTopTab().getValue()));
-    Rectangle modelRect = layout.toModel(layer, rect);
-    final Rectangle layoutBounds = layout.getBounds();
+  /**
+   * @return the transform of the layout as last updated
+   */
+  static private ModelViewTransform getModelViewTransform(RadComponent layout) {
+    if (layout.getLayout() instanceof RadALMLayout)
+      return ((RadALMLayout)layout.getLayout()).getModelViewTransform();
+    return new ModelViewTransform();
+  }
 
-    double offsetX = aleLayoutBounds.getX() - layoutBounds.getX();
-    double offsetY = aleLayoutBounds.getY() - layoutBounds.getY();
-    modelRect.translate((int)offsetX, (int)offsetY);
-    return modelRect;
+  static public Rectangle fromModel(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout, Area.Rect rect,
+                                    Rectangle result) {
+    return getModelViewTransform(layer, almLayoutSpecs, layout).toView(rect, result);
   }
 
-  static public Point toModel(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout, Point point) {
-    Rectangle aleLayoutBounds = new Rectangle((int)almLayoutSpecs.getLeftTab().getValue(), (int)almLayoutSpecs.getTopTab().getValue(),
-                                              (int)(almLayoutSpecs.getRightTab().getValue() - almLayoutSpecs.getLeftTab().getValue()),
-                                              (int)(almLayoutSpecs.getBottomTab().getValue() - almLayoutSpecs.getTopTab().getValue()));
-    Point modelPoint = layout.toModel(layer, point);
-    final Rectangle layoutBounds = layout.getBounds();
+  static public Point fromModel(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout, Point point, Point result) {
+    return getModelViewTransform(layer, almLayoutSpecs, layout).toView(point, result);
+  }
+
+  static public Rectangle toModel(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout, Rectangle rect,
+                                  Rectangle result) {
+    return getModelViewTransform(layer, almLayoutSpecs, layout).toModel(rect, result);
+  }
 
-    double offsetX = aleLayoutBounds.getX() - layoutBounds.getX();
-    double offsetY = aleLayoutBounds.getY() - layoutBounds.getY();
-    modelPoint.translate((int)offsetX, (int)offsetY);
-    return modelPoint;
+  static public Point toModel(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout, Point point, Point result) {
+    return getModelViewTransform(layer, almLayoutSpecs, layout).toModel(point, result);
   }
 
   static public IALMLayoutSpecs getLayoutSpec(RadViewComponent child) {
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.android.designer.ale.model.layout.alm;
+
+import com.intellij.designer.model.RadComponent;
+import nz.ac.auckland.alm.Area;
+import nz.ac.auckland.alm.IALMLayoutSpecs;
+
+import java.awt.*;
+
+
+/**
+ * Maps ALE model coordinates of a container to the coordinates of a designer layer:
+ * view = scale * (model - layout origin) + offset.
+ *
+ * RadComponent.fromModel is affine, so one probe of the container bounds gives the scale and offset for the current zoom. Call
+ * update() once before a batch of conversions, e.g. at the start of a paint; it only probes the container and recomputes the
+ * transform if the zoom, the layer, the container bounds or the layout origin changed.
+ */
+class ModelViewTransform {
+  private Component myLayer;
+  private final Rectangle myLayoutBounds = new Rectangle();
+  private final Rectangle myLayoutBoundsView = new Rectangle();
+  private double myOriginX;
+  private double myOriginY;
+  private boolean myIsValid = false;
+
+  private double myScaleX = 1;
+  private double myScaleY = 1;
+  private double myOffsetX;
+  private double myOffsetY;
+
+  /**
+   * @return true if the transform changed
+   */
+  boolean update(Component layer, IALMLayoutSpecs almLayoutSpecs, RadComponent layout) {
+    Rectangle layoutBounds = layout.getBounds();
+    Rectangle layoutBoundsView = layout.fromModel(layer, layoutBounds);
+    double originX = almLayoutSpecs.getLeftTab().getValue();
+    double originY = almLayoutSpecs.getTopTab().getValue();
+    if (myIsValid && myLayer == layer && myLayoutBounds.equals(layoutBounds) && myLayoutBoundsView.equals(layoutBoundsView)
+        && myOriginX == originX && myOriginY == originY)
+      return false;
+
+    myLayer = layer;
+    myLayoutBounds.setBounds(layoutBounds);
+    myLayoutBoundsView.setBounds(layoutBoundsView);
+    myOriginX = originX;
+    myOriginY = originY;
+    myScaleX = layoutBounds.width > 0 ? (double)layoutBoundsView.width / layoutBounds.width : 1;
+    myScaleY = layoutBounds.height > 0 ? (double)layoutBoundsView.height / layoutBounds.height : 1;
+    myOffsetX = layoutBoundsView.x - myScaleX * originX;
+    myOffsetY = layoutBoundsView.y - myScaleY * originY;
+    myIsValid = true;
+    return true;
+  }
+
+  /**
+   * View pixels per model unit in x direction.
+   */
+  double getScaleX() {
+    return myScaleX;
+  }
+
+  int toViewX(double x) {
+    return (int)Math.round(myScaleX * x + myOffsetX);
+  }
+
+  int toViewY(double y) {
+    return (int)Math.round(myScaleY * y + myOffsetY);
+  }
+
+  Rectangle toView(Area.Rect rect, Rectangle result) {
+    int left = toViewX(rect.left);
+    int top = toViewY(rect.top);
+    result.setBounds(left, top, toViewX(rect.right) - left, toViewY(rect.bottom) - top);
+    return result;
+  }
+
+  Rectangle toView(double left, double top, double right, double bottom, Rectangle result) {
+    int viewLeft = toViewX(left);
+    int viewTop = toViewY(top);
+    result.setBounds(viewLeft, viewTop, toViewX(right) - viewLeft, toViewY(bottom) - viewTop);
+    return result;
+  }
+
+  Point toView(Point point, Point result) {
+    result.setLocation(toViewX(point.x), toViewY(point.y));
+    return result;
+  }
+
+  Point toModel(Point point, Point result) {
+    result.setLocation((int)Math.round((point.x - myOffsetX) / myScaleX), (int)Math.round((point.y - myOffsetY) / myScaleY));
+    return result;
+  }
+
+  Rectangle toModel(Rectangle rect, Rectangle result) {
+    int left = (int)Math.round((rect.x - myOffsetX) / myScaleX);
+    int top = (int)Math.round((rect.y - myOffsetY) / myScaleY);
+    int right = (int)Math.round((rect.x + rect.width - myOffsetX) / myScaleX);
+    int bottom = (int)Math.round((rect.y + rect.height - myOffsetY) / myScaleY);
+    result.setBounds(left, top, right - left, bottom - top);
+    return result;
+  }
+}
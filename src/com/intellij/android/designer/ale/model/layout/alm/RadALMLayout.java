@@ -38,19 +38,39 @@ public class RadALMLayout extends RadViewLayoutWithData implements ILayoutDecora
   LayoutSpecManager myLayoutSpecManager;
 
   ALMLayoutDecorator myRelativeDecorator;
+  // model to view coordinates of the container
+  private final ModelViewTransform myModelViewTransform = new ModelViewTransform();
+
+  ModelViewTransform getModelViewTransform() {
+    return myModelViewTransform;
+  }
 
   protected LayoutSpecManager getLayoutSpecManager() {
     RadViewComponent layout = (RadViewComponent)myContainer;
     IALMLayoutSpecs almLayoutSpecs = (IALMLayoutSpecs)layout.getViewInfo().getViewObject();
 
-    if (myLayoutSpecManager != null && myLayoutSpecManager.isValid() && myLayoutSpecManager.getALMLayoutSpecs() == almLayoutSpecs)
-      return myLayoutSpecManager;
+    if (myLayoutSpecManager != null && myLayoutSpecManager.isValid()) {
+      if (myLayoutSpecManager.getALMLayoutSpecs() == almLayoutSpecs)
+        return myLayoutSpecManager;
+      // layoutlib creates new specs on every render, also if the layout didn't change
+      LayoutFingerprint fingerprint = new LayoutFingerprint(almLayoutSpecs);
+      // a detection may still be running, e.g. when a render finishes during a drag
+      synchronized (myLayoutSpecManager.getFeedbackPipeline().getEditorLock()) {
+        if (myLayoutSpecManager.rebindRender(almLayoutSpecs, fingerprint))
+          return myLayoutSpecManager;
+        // the manager already contains the edits that led to the new specs
+        if (myLayoutSpecManager.rebind(almLayoutSpecs, fingerprint))
+          return myLayoutSpecManager;
+      }
+    }
 
     myLayoutSpecManager = new LayoutSpecManager(almLayoutSpecs, layout);
 
     AlgebraData data = SoundLayoutBuilder.fillWithEmptySpaces(myLayoutSpecManager.getLayoutSpec());
-    if (data != null)
+    if (data != null) {
       data.applyToLayoutSpec(myLayoutSpecManager.getLayoutSpec());
+      myLayoutSpecManager.updateEmptySpaceBounds();
+    }
 
     return myLayoutSpecManager;
   }
@@ -115,22 +135,37 @@ public class RadALMLayout extends RadViewLayoutWithData implements ILayoutDecora
     ApplicationManager.getApplication().runWriteAction(new Runnable() {
       @Override
       public void run() {
-        // just reload the the
-        invalidateLayoutSpecManager();
-        myLayoutSpecManager = getLayoutSpecManager();
-        RadViewComponent viewComponent = (RadViewComponent)component;
-        Area orgArea = myLayoutSpecManager.readOrgAreaFromRadComponent(viewComponent);
-        if (orgArea == null)
-          return;
-        Area clone = myLayoutSpecManager.getOrgToClonedArea(orgArea);
-        IEditOperation deleteOperation = myLayoutSpecManager.getLayoutEditor().getDeleteOperation(clone);
-        deleteOperation.perform();
-
-        LayoutSpecXmlWriter xmlWriter = new LayoutSpecXmlWriter(myLayoutSpecManager);
-        xmlWriter.write();
+        LayoutSpecManager layoutSpecManager = getLayoutSpecManager();
+        Area clone = findArea(layoutSpecManager, component);
+        if (clone == null) {
+          // the area has never been mapped, e.g. after a rebuild; build the manager from the current specs again
+          invalidateLayoutSpecManager();
+          layoutSpecManager = getLayoutSpecManager();
+          clone = findArea(layoutSpecManager, component);
+          if (clone == null)
+            return;
+        }
+        IEditOperation deleteOperation = layoutSpecManager.getLayoutEditor().getDeleteOperation(clone);
+        layoutSpecManager.perform(deleteOperation);
+        layoutSpecManager.removeComponent(component);
 
-        invalidateLayoutSpecManager();
+        LayoutSpecXmlWriter xmlWriter = new LayoutSpecXmlWriter(layoutSpecManager);
+        xmlWriter.write();
       }
     });
   }
+
+  /**
+   * @return the area of the component in the manager's LayoutSpec, null if it isn't mapped
+   */
+  static private Area findArea(LayoutSpecManager layoutSpecManager, RadComponent component) {
+    Area clone = layoutSpecManager.getAreaFor(component);
+    if (clone != null)
+      return clone;
+    // the manager has been built after the component has been removed from the container
+    Area orgArea = layoutSpecManager.readOrgAreaFromRadComponent((RadViewComponent)component);
+    if (orgArea == null)
+      return null;
+    return layoutSpecManager.getOrgToClonedArea(orgArea);
+  }
 }
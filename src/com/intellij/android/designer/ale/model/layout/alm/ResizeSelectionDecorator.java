@@ -31,6 +31,8 @@ import java.awt.*;
 
 public class ResizeSelectionDecorator extends com.intellij.designer.designSurface.selection.ResizeSelectionDecorator {
   final DrawingStyle style;
+  // only used while painting
+  private final Rectangle myAreaBounds = new Rectangle();
 
   public ResizeSelectionDecorator(DrawingStyle style) {
     super(Color.RED /* should not be used */, 1 /* should not be used */);
@@ -63,7 +65,7 @@ public class ResizeSelectionDecorator extends com.intellij.designer.designSurfac
       Area area = almLayoutSpecs.getArea(viewObject);
       Area.Rect rect = area.getRect();
 
-      Rectangle areaBounds = LayoutSpecManager.fromModel(layer, almLayoutSpecs, component.getParent(), rect);
+      Rectangle areaBounds = LayoutSpecManager.fromModel(layer, almLayoutSpecs, component.getParent(), rect, myAreaBounds);
       DesignerGraphics.drawRect(style, g, areaBounds.x, areaBounds.y, areaBounds.width, areaBounds.height);
     }
   }
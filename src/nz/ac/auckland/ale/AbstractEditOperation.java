@@ -15,6 +15,10 @@
  */
 package nz.ac.auckland.ale;
 
+import nz.ac.auckland.alm.Area;
+
+import java.util.List;
+
 
 abstract class AbstractEditOperation implements IEditOperation {
   final LayoutEditor layoutEditor;
@@ -22,4 +26,13 @@ abstract class AbstractEditOperation implements IEditOperation {
   public AbstractEditOperation(LayoutEditor layoutEditor) {
     this.layoutEditor = layoutEditor;
   }
+
+  /**
+   * Lists the areas that have been moved by perform() if the operation neither added nor removed areas.
+   *
+   * @return null if the changes are not known; the LayoutEditor then rebuilds its spatial indices
+   */
+  List<Area> getChangedAreas() {
+    return null;
+  }
 }
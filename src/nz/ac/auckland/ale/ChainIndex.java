@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.algebra.Edge;
+import nz.ac.auckland.alm.algebra.IDirection;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.util.*;
+
+
+/**
+ * Precomputed answers of Edge.isInChain for all tabs of an edge map and one direction.
+ *
+ * From a tab the chain continues at the tabs of the areas that are attached to the tab in the given direction, see TabTable. For
+ * every tab the index stores the set of tabs that can be reached this way as a bit set. The sets need n^2 bits, so for layouts
+ * with more than MAX_TABS tabs, or if the chains are not acyclic, the index falls back to Edge.isInChain.
+ */
+class ChainIndex<Tab extends Variable> {
+  static final int MAX_TABS = 4096;
+
+  final private Map<Tab, Edge> edges;
+  final private IDirection<Tab, ?> direction;
+  final private TabTable<Tab> table;
+  // reachable[i] contains the ids of the tabs reachable from tab i, null if the index is not used
+  private BitSet[] reachable;
+
+  public ChainIndex(Map<Tab, Edge> edges, IDirection<Tab, ?> direction) {
+    this.edges = edges;
+    this.direction = direction;
+    this.table = new TabTable<Tab>(edges, direction);
+    if (table.size() <= MAX_TABS)
+      reachable = buildClosure(table);
+  }
+
+  public TabTable<Tab> getTable() {
+    return table;
+  }
+
+  /**
+   * Depth first search that unites the sets of the next tabs after they are complete.
+   *
+   * @return null if there is a cycle
+   */
+  static private BitSet[] buildClosure(TabTable<?> table) {
+    final int size = table.size();
+    final int[] nextStart = table.nextStart;
+    final int[] next = table.next;
+    BitSet[] closure = new BitSet[size];
+    // 0: not visited, 1: on the stack, 2: done
+    byte[] state = new byte[size];
+    int[] stack = new int[size];
+    int[] position = new int[size];
+    for (int root = 0; root < size; root++) {
+      if (state[root] != 0)
+        continue;
+      int depth = 0;
+      stack[0] = root;
+      state[root] = 1;
+      position[root] = nextStart[root];
+      while (depth >= 0) {
+        int tab = stack[depth];
+        if (position[tab] < nextStart[tab + 1]) {
+          int nextTab = next[position[tab]++];
+          if (state[nextTab] == 1)
+            return null;
+          if (state[nextTab] == 0) {
+            state[nextTab] = 1;
+            position[nextTab] = nextStart[nextTab];
+            stack[++depth] = nextTab;
+          }
+          continue;
+        }
+        BitSet set = new BitSet(size);
+        for (int i = nextStart[tab]; i < nextStart[tab + 1]; i++) {
+          set.set(next[i]);
+          set.or(closure[next[i]]);
+        }
+        closure[tab] = set;
+        state[tab] = 2;
+        depth--;
+      }
+    }
+    return closure;
+  }
+
+  /**
+   * Same as Edge.isInChain for the tabs with the given ids.
+   */
+  public boolean isInChain(int tabId, int targetId) {
+    if (reachable != null && tabId != targetId)
+      return reachable[tabId].get(targetId);
+    return Edge.isInChain(table.getTab(tabId), table.getTab(targetId), edges, direction);
+  }
+
+  /**
+   * Same as Edge.isInChain(tab, target, edges, direction).
+   */
+  public boolean isInChain(Tab tab, Tab target) {
+    int tabId = table.getId(tab);
+    int targetId = table.getId(target);
+    if (tabId >= 0 && targetId >= 0)
+      return isInChain(tabId, targetId);
+    return Edge.isInChain(tab, target, edges, direction);
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.algebra.BottomDirection;
+import nz.ac.auckland.alm.algebra.LeftDirection;
+import nz.ac.auckland.alm.algebra.RightDirection;
+import nz.ac.auckland.alm.algebra.TopDirection;
+
+
+/**
+ * Shared direction instances. The directions are stateless, so there is no need to create new ones while dragging.
+ */
+class Directions {
+  static final LeftDirection LEFT = new LeftDirection();
+  static final TopDirection TOP = new TopDirection();
+  static final RightDirection RIGHT = new RightDirection();
+  static final BottomDirection BOTTOM = new BottomDirection();
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.Area;
+
+
+/**
+ * Everything the drag operation detection depends on, except the exact cursor position.
+ *
+ * The cursor position is reduced to the tab cell it is in: the index of the last tab smaller and the first tab larger than the
+ * cursor, in x and y. Inside a cell the empty area search starts from the same empty space and minimizes against the same tabs,
+ * so it finds the same result. The tabs of the area under the cursor are only relevant if the cursor is over one of them.
+ */
+class DragKey {
+  static final int OVER_LEFT = 1;
+  static final int OVER_TOP = 1 << 1;
+  static final int OVER_RIGHT = 1 << 2;
+  static final int OVER_BOTTOM = 1 << 3;
+
+  Area movedArea;
+  Area mouseOver;
+  Area contentMouseOver;
+  int overTabs;
+  int xSmaller;
+  int xLarger;
+  int ySmaller;
+  int yLarger;
+
+  void set(DragKey key) {
+    this.movedArea = key.movedArea;
+    this.mouseOver = key.mouseOver;
+    this.contentMouseOver = key.contentMouseOver;
+    this.overTabs = key.overTabs;
+    this.xSmaller = key.xSmaller;
+    this.xLarger = key.xLarger;
+    this.ySmaller = key.ySmaller;
+    this.yLarger = key.yLarger;
+  }
+
+  boolean matches(DragKey key) {
+    return movedArea == key.movedArea && mouseOver == key.mouseOver && contentMouseOver == key.contentMouseOver
+           && overTabs == key.overTabs && xSmaller == key.xSmaller && xLarger == key.xLarger && ySmaller == key.ySmaller
+           && yLarger == key.yLarger;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.Area;
+import nz.ac.auckland.alm.EmptySpace;
+import nz.ac.auckland.alm.XTab;
+import nz.ac.auckland.alm.YTab;
+import nz.ac.auckland.alm.algebra.AlgebraData;
+import nz.ac.auckland.alm.algebra.EmptyAreaCleaner;
+import nz.ac.auckland.alm.algebra.TilingAlgebra;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The maximal empty areas of a layout revision, as found by the EmptyAreaFinder, for a given moved area.
+ *
+ * The result of the finder only depends on the tab cell the point is in (see DragKey), so the catalogue stores one finder per
+ * cell. The cells are filled when they are queried for the first time; the catalogue has to be dropped when the layout changes.
+ *
+ * The empty space a finder starts from is looked up in the editor's empty space index. Making the moved area empty only changes
+ * the empty spaces around it; these few spaces are not in the index and are searched linearly.
+ */
+class EmptyAreaCatalogue {
+  static private class Cell {
+    int xSmaller;
+    int xLarger;
+    int ySmaller;
+    int yLarger;
+
+    Cell() {
+    }
+
+    Cell(Cell cell) {
+      set(cell.xSmaller, cell.xLarger, cell.ySmaller, cell.yLarger);
+    }
+
+    void set(int xSmaller, int xLarger, int ySmaller, int yLarger) {
+      this.xSmaller = xSmaller;
+      this.xLarger = xLarger;
+      this.ySmaller = ySmaller;
+      this.yLarger = yLarger;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Cell))
+        return false;
+      Cell cell = (Cell)o;
+      return xSmaller == cell.xSmaller && xLarger == cell.xLarger && ySmaller == cell.ySmaller && yLarger == cell.yLarger;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = xSmaller;
+      result = 31 * result + xLarger;
+      result = 31 * result + ySmaller;
+      result = 31 * result + yLarger;
+      return result;
+    }
+  }
+
+  final private LayoutEditor layoutEditor;
+  final private Area movedArea;
+  // the layout with the moved area made empty
+  final private AlgebraData base;
+  // empty spaces of base that are not in the editor's layout, i.e. that are not in its index
+  final private List<EmptySpace> addedSpaces = new ArrayList<EmptySpace>();
+  // null values mark cells without an empty area
+  final private Map<Cell, EmptyAreaFinder> cells = new HashMap<Cell, EmptyAreaFinder>();
+  // lookup key, only stored keys are copied
+  final private Cell probe = new Cell();
+
+  EmptyAreaCatalogue(LayoutEditor layoutEditor, Area movedArea) {
+    this.layoutEditor = layoutEditor;
+    this.movedArea = movedArea;
+
+    // the clone shares the tabs of the unchanged empty spaces with the editor's layout
+    JournaledAlgebraData data = (JournaledAlgebraData)LayoutEditor.cloneWithReplacedEmptySpaces(layoutEditor.getAlgebraData());
+    int savepoint = data.savepoint();
+    try {
+      if (TilingAlgebra.makeAreaEmpty(data, movedArea) != null)
+        EmptyAreaCleaner.clean(data);
+      data.getEmptySpaceChanges(savepoint, addedSpaces, null);
+    }
+    finally {
+      data.release(savepoint);
+    }
+    base = data;
+  }
+
+  Area getMovedArea() {
+    return movedArea;
+  }
+
+  /**
+   * @return a finder that found the maximal empty area at the given point or null if there is no empty area. The returned finder
+   * must not be modified.
+   */
+  EmptyAreaFinder find(float x, float y) {
+    TabIndex<XTab> xTabs = layoutEditor.getXTabIndex();
+    TabIndex<YTab> yTabs = layoutEditor.getYTabIndex();
+    probe.set(xTabs.lastSmaller(x), xTabs.firstLarger(x), yTabs.lastSmaller(y), yTabs.firstLarger(y));
+    EmptyAreaFinder cached = cells.get(probe);
+    if (cached != null || cells.containsKey(probe))
+      return cached;
+
+    // the finder splits the empty spaces of its data, so every cell needs its own copy
+    IEditorMetrics metrics = layoutEditor.getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    AlgebraData clone = LayoutEditor.cloneWithReplacedEmptySpaces(base);
+    if (metrics.isEnabled())
+      metrics.record(IEditorMetrics.Phase.CLONE, null, System.nanoTime() - start);
+    EmptyAreaFinder finder = new EmptyAreaFinder(clone, findBaseEmptySpace(x, y));
+    finder.metrics = metrics;
+    if (!finder.find(x, y))
+      finder = null;
+    cells.put(new Cell(probe), finder);
+    return finder;
+  }
+
+  /**
+   * @return the empty space of base that contains the point or null if the index doesn't know it
+   */
+  private EmptySpace findBaseEmptySpace(float x, float y) {
+    EmptySpace indexed = layoutEditor.getEmptySpaceIndex().find(x, y);
+    if (indexed != null) {
+      EmptySpace space = EmptyAreaFinder.findSameEmptySpace(base, indexed);
+      if (space != null)
+        return space;
+    }
+    for (EmptySpace space : addedSpaces) {
+      if (space.getRect().contains(x, y))
+        return space;
+    }
+    return null;
+  }
+}
@@ -22,6 +22,7 @@ import nz.ac.auckland.linsolve.Variable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
 
 
 public class EmptyAreaFinder {
@@ -30,9 +31,25 @@ public class EmptyAreaFinder {
   final List<YTab> maxAreaYTabs = new ArrayList<YTab>();
 
   AlgebraData algebraData;
+  // empty space of a tiling that shares its tabs with algebraData and that contains the searched point, may be null
+  final EmptySpace startSpace;
+  // tab indices of algebraData, only used while minimizing the area
+  private TabIndex<XTab> xTabIndex;
+  private TabIndex<YTab> yTabIndex;
+  IEditorMetrics metrics = IEditorMetrics.NONE;
 
   public EmptyAreaFinder(AlgebraData algebraData) {
+    this(algebraData, null);
+  }
+
+  /**
+   * @param startSpace the empty space that contains the point passed to find(), taken from the tiling algebraData has been cloned
+   *                   from, e.g. found with an index. If algebraData has no space with the same tabs the finder falls back to a
+   *                   linear search.
+   */
+  EmptyAreaFinder(AlgebraData algebraData, EmptySpace startSpace) {
     this.algebraData = algebraData;
+    this.startSpace = startSpace;
   }
 
   public EmptySpace getMaxArea() {
@@ -56,12 +73,28 @@ public class EmptyAreaFinder {
     if (space == null)
       return false;
     // start the search from the minimal space
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
     EmptySpace minSpace = minimizeArea(space, x, y);
+    if (metrics.isEnabled()) {
+      long end = System.nanoTime();
+      metrics.record(IEditorMetrics.Phase.MINIMIZE, null, end - start);
+      start = end;
+    }
+    // maximizing replaces algebraData
+    xTabIndex = null;
+    yTabIndex = null;
     maxArea = maximizeArea(minSpace, maxAreaXTabs, maxAreaYTabs);
+    if (metrics.isEnabled())
+      metrics.record(IEditorMetrics.Phase.MAXIMIZE, null, System.nanoTime() - start);
     return true;
   }
 
   private EmptySpace findEmptySpace(float x, float y) {
+    if (startSpace != null) {
+      EmptySpace space = findSameEmptySpace(algebraData, startSpace);
+      if (space != null)
+        return space;
+    }
     for (EmptySpace space : algebraData.getEmptySpaces()) {
       if (space.getRect().contains(x, y))
         return space;
@@ -69,6 +102,34 @@ public class EmptyAreaFinder {
     return null;
   }
 
+  /**
+   * Finds the empty space in data that has the same tabs as the given space. Only the areas at the left tab of the space are
+   * checked.
+   *
+   * @return null if data has no such empty space
+   */
+  static EmptySpace findSameEmptySpace(AlgebraData data, EmptySpace space) {
+    Edge edge = data.getXTabEdges().get(space.getLeft());
+    if (edge == null)
+      return null;
+    LeftDirection left = Directions.LEFT;
+    EmptySpace same = findSameEmptySpace(left.getOppositeAreas(edge), space);
+    if (same == null)
+      same = findSameEmptySpace(left.getAreas(edge), space);
+    return same;
+  }
+
+  static private EmptySpace findSameEmptySpace(List<IArea> areas, EmptySpace space) {
+    for (IArea area : areas) {
+      if (!(area instanceof EmptySpace))
+        continue;
+      if (area.getLeft() == space.getLeft() && area.getTop() == space.getTop() && area.getRight() == space.getRight()
+          && area.getBottom() == space.getBottom())
+        return (EmptySpace)area;
+    }
+    return null;
+  }
+
   interface ITabFinder<Tab extends Variable> {
     Tab find(double value);
   }
@@ -76,78 +137,51 @@ public class EmptyAreaFinder {
   class LeftTabFinder implements ITabFinder<XTab> {
     @Override
     public XTab find(double value) {
-      return findFirstSmallerTab(value, algebraData.getSortedXTabs(), algebraData.getXTabEdges(), new LeftDirection());
+      return getXTabIndex().findFirstSmallerTab(value, algebraData.getXTabEdges(), Directions.LEFT);
     }
   }
 
   class RightTabFinder implements ITabFinder<XTab> {
     @Override
     public XTab find(double value) {
-      return findFirstLargerTab(value, algebraData.getSortedXTabs(), algebraData.getXTabEdges(), new RightDirection());
+      return getXTabIndex().findFirstLargerTab(value, algebraData.getXTabEdges(), Directions.RIGHT);
     }
   }
 
   class TopTabFinder implements ITabFinder<YTab> {
     @Override
     public YTab find(double value) {
-      return findFirstSmallerTab(value, algebraData.getSortedYTabs(), algebraData.getYTabEdges(), new TopDirection());
+      return getYTabIndex().findFirstSmallerTab(value, algebraData.getYTabEdges(), Directions.TOP);
     }
   }
 
   class BottomTabFinder implements ITabFinder<YTab> {
     @Override
     public YTab find(double value) {
-      return findFirstLargerTab(value, algebraData.getSortedYTabs(), algebraData.getYTabEdges(), new BottomDirection());
+      return getYTabIndex().findFirstLargerTab(value, algebraData.getYTabEdges(), Directions.BOTTOM);
     }
   }
 
-  private <Tab extends Variable> Tab findFirstLargerTab(double value, List<Tab> tabs, Map<Tab, Edge> edges, IDirection direction) {
-    for (int i = 0; i < tabs.size(); i++) {
-      Tab tab = tabs.get(i);
-      if (tab.getValue() > value) {
-        // if there are tabs at the same position pick the first in the chain
-        double tabValue = tab.getValue();
-        for (i++; i < tabs.size(); i++) {
-          Tab nextTab = tabs.get(i);
-          if (!LayoutSpec.fuzzyEquals(tabValue, nextTab.getValue()))
-            break;
-
-          if (Edge.isInChain(nextTab, tab, edges, direction))
-            tab = nextTab;
-        }
-        return tab;
-      }
-    }
-    return null;
+  // Splitting an empty space doesn't add or remove tabs, thus, the indices stay valid while minimizing the area.
+  private TabIndex<XTab> getXTabIndex() {
+    if (xTabIndex == null)
+      xTabIndex = new TabIndex<XTab>(algebraData.getSortedXTabs());
+    return xTabIndex;
   }
 
-  private <Tab extends Variable> Tab findFirstSmallerTab(double value, List<Tab> tabs, Map<Tab, Edge> edges, IDirection direction) {
-    for (int i = tabs.size() - 1; i >= 0; i--) {
-      Tab tab = tabs.get(i);
-      if (tab.getValue() < value) {
-        // if there are tabs at the same position pick the first in the chain
-        double tabValue = tab.getValue();
-        for (i--; i >= 0; i--) {
-          Tab nextTab = tabs.get(i);
-          if (!LayoutSpec.fuzzyEquals(tabValue, nextTab.getValue()))
-            break;
-
-          if (Edge.isInChain(nextTab, tab, edges, direction))
-            tab = nextTab;
-        }
-        return tab;
-      }
-    }
-    return null;
+  private TabIndex<YTab> getYTabIndex() {
+    if (yTabIndex == null)
+      yTabIndex = new TabIndex<YTab>(algebraData.getSortedYTabs());
+    return yTabIndex;
   }
 
   private EmptySpace minimizeArea(EmptySpace space, float x, float y) {
     Map<XTab, Edge> xTabEdgeMap = algebraData.getXTabEdges();
     Map<YTab, Edge> yTabEdgeMap = algebraData.getYTabEdges();
-    space = minimizeSide(algebraData, space, x, new LeftDirection(), xTabEdgeMap, new LeftTabFinder());
-    space = minimizeSide(algebraData, space, x, new RightDirection(), xTabEdgeMap, new RightTabFinder());
-    space = minimizeSide(algebraData, space, y, new TopDirection(), yTabEdgeMap, new TopTabFinder());
-    space = minimizeSide(algebraData, space, y, new BottomDirection(), yTabEdgeMap, new BottomTabFinder());
+    space = minimizeSide(algebraData, space, x, Directions.LEFT, xTabEdgeMap, new LeftTabFinder());
+    space = minimizeSide(algebraData, space, x, Directions.RIGHT, xTabEdgeMap, new RightTabFinder());
+    space = minimizeSide(algebraData, space, y, Directions.TOP, yTabEdgeMap, new TopTabFinder());
+    space = minimizeSide(algebraData, space, y, Directions.BOTTOM, yTabEdgeMap, new BottomTabFinder());
     return space;
   }
 
@@ -180,31 +214,145 @@ public class EmptyAreaFinder {
       this.direction = direction;
     }
 
-    public double maximize(EmptySpace area, AlgebraData orgData, Tab border, IDirection<OrthTab, Tab> orthDirection) {
-      double size = 0;
-      if (direction.getTab(area) != border) {
+    /**
+     * Clones the parent data if the candidate may actually differ from it. Until then the candidate shares all areas, empty
+     * spaces and edges with orgData. Has to run on the thread that owns orgData; maximize() then only works on the clone.
+     */
+    public void prepare(EmptySpace area, AlgebraData orgData, Tab border) {
+      if (direction.getTab(area) != border && TilingPreCheck.canExtend(orgData, area, direction)) {
         candidate = new EmptySpace(area.getLeft(), area.getTop(), area.getRight(), area.getBottom());
         data = LayoutEditor.cloneWithReplacedEmptySpaces(orgData, area, candidate);
-        if (TilingAlgebra.extend(data, candidate, direction)) {
-          size = getSize(candidate);
-        } else {
-          candidate = null;
-          data = null;
+      }
+    }
+
+    public double maximize() {
+      if (candidate == null)
+        return 0;
+      if (TilingAlgebra.extend(data, candidate, direction))
+        return getSize(candidate);
+      candidate = null;
+      data = null;
+      return 0;
+    }
+
+    /**
+     * Same as maximize but extends the space in place and rolls the change back afterwards, i.e. the data is not cloned. apply()
+     * redoes the extension if the candidate is chosen.
+     */
+    public double probe(EmptySpace area, JournaledAlgebraData orgData, Tab border) {
+      double size = 0;
+      if (direction.getTab(area) != border && TilingPreCheck.canExtend(orgData, area, direction)) {
+        int savepoint = orgData.savepoint();
+        try {
+          EmptySpace probe = replace(orgData, area);
+          if (TilingAlgebra.extend(orgData, probe, direction)) {
+            candidate = probe;
+            size = getSize(probe);
+          }
+        }
+        finally {
+          orgData.rollback(savepoint);
         }
       }
       return size;
     }
 
+    public void apply(EmptySpace area, AlgebraData orgData) {
+      candidate = replace(orgData, area);
+      TilingAlgebra.extend(orgData, candidate, direction);
+      data = orgData;
+    }
+
+    private EmptySpace replace(AlgebraData data, EmptySpace area) {
+      EmptySpace replacement = new EmptySpace(area.getLeft(), area.getTop(), area.getRight(), area.getBottom());
+      data.removeArea(area);
+      data.addArea(replacement);
+      return replacement;
+    }
+
     private double getSize(IArea area) {
       return (area.getRight().getValue() - area.getLeft().getValue()) * (area.getBottom().getValue() - area.getTop().getValue());
     }
   }
 
+  /**
+   * Prepares the candidate on the calling thread and returns a task that maximizes it.
+   */
+  static private <Tab extends Variable, OrthTab extends Variable>
+  Callable<Double> maximizeTask(final MaximizeCandidate<Tab, OrthTab> candidate, EmptySpace area, AlgebraData orgData, Tab border) {
+    candidate.prepare(area, orgData, border);
+    return new Callable<Double>() {
+      @Override
+      public Double call() {
+        return candidate.maximize();
+      }
+    };
+  }
+
+  /**
+   * Layouts with fewer areas and empty spaces than this are maximized sequentially. For them, handing the candidates to other
+   * threads costs more than evaluating them.
+   */
+  static final int PARALLEL_THRESHOLD = 400;
+  static private ExecutorService executor;
+
+  static private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+      executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "ALE maximize");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return executor;
+  }
+
+  private boolean isParallel() {
+    if (Runtime.getRuntime().availableProcessors() < 2)
+      return false;
+    return algebraData.getAreas().size() + algebraData.getEmptySpaces().size() >= PARALLEL_THRESHOLD;
+  }
+
+  /**
+   * Evaluates the candidates. The candidates work on their own clones of the data, which have been made before on the calling
+   * thread, thus, they are independent and can be evaluated in parallel.
+   *
+   * @return the sizes in the order of the tasks
+   */
+  private double[] evaluate(List<Callable<Double>> tasks) {
+    double[] sizes = new double[tasks.size()];
+    try {
+      if (!isParallel()) {
+        for (int i = 0; i < tasks.size(); i++)
+          sizes[i] = tasks.get(i).call();
+        return sizes;
+      }
+      List<Future<Double>> results = getExecutor().invokeAll(tasks);
+      for (int i = 0; i < results.size(); i++)
+        sizes[i] = results.get(i).get();
+      return sizes;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   private EmptySpace maximizeArea(EmptySpace area, List<XTab> containingXTabs, List<YTab> containingYTabs) {
-    IDirection<XTab, YTab> left = new LeftDirection();
-    IDirection<YTab, XTab> top = new TopDirection();
-    IDirection<XTab, YTab> right = new RightDirection();
-    IDirection<YTab, XTab> bottom = new BottomDirection();
+    IDirection<XTab, YTab> left = Directions.LEFT;
+    IDirection<YTab, XTab> top = Directions.TOP;
+    IDirection<XTab, YTab> right = Directions.RIGHT;
+    IDirection<YTab, XTab> bottom = Directions.BOTTOM;
 
     while (true) {
       MaximizeCandidate<XTab, YTab> leftCandidate = new MaximizeCandidate<XTab, YTab>(containingXTabs, left);
@@ -212,29 +360,52 @@ public class EmptyAreaFinder {
       MaximizeCandidate<XTab, YTab> rightCandidate = new MaximizeCandidate<XTab, YTab>(containingXTabs, right);
       MaximizeCandidate<YTab, XTab> bottomCandidate = new MaximizeCandidate<YTab, XTab>(containingYTabs, bottom);
 
-      double leftSize = leftCandidate.maximize(area, algebraData, algebraData.getLeft(), bottom);
-      double rightSize = rightCandidate.maximize(area, algebraData, algebraData.getRight(), bottom);
-      double topSize = topCandidate.maximize(area, algebraData, algebraData.getTop(), right);
-      double bottomSize = bottomCandidate.maximize(area, algebraData, algebraData.getBottom(), right);
+      double[] sizes;
+      boolean inPlace = !isParallel() && algebraData instanceof JournaledAlgebraData;
+      if (inPlace) {
+        JournaledAlgebraData data = (JournaledAlgebraData)algebraData;
+        sizes = new double[] {leftCandidate.probe(area, data, data.getLeft()), rightCandidate.probe(area, data, data.getRight()),
+          topCandidate.probe(area, data, data.getTop()), bottomCandidate.probe(area, data, data.getBottom())};
+      } else {
+        List<Callable<Double>> tasks = new ArrayList<Callable<Double>>(4);
+        tasks.add(maximizeTask(leftCandidate, area, algebraData, algebraData.getLeft()));
+        tasks.add(maximizeTask(rightCandidate, area, algebraData, algebraData.getRight()));
+        tasks.add(maximizeTask(topCandidate, area, algebraData, algebraData.getTop()));
+        tasks.add(maximizeTask(bottomCandidate, area, algebraData, algebraData.getBottom()));
+        sizes = evaluate(tasks);
+      }
 
-      // choose best candidate
-      MaximizeCandidate candidate = null;
       if (leftCandidate.candidate == null && rightCandidate.candidate == null && topCandidate.candidate == null
           && bottomCandidate.candidate == null) return area;
-      if (leftCandidate.candidate != null && leftSize > rightSize && leftSize > topSize && leftSize > bottomSize) {
-        candidate = leftCandidate;
-      } else if (rightCandidate.candidate != null && rightSize > topSize && rightSize > bottomSize) {
-        candidate = rightCandidate;
-      } else if (topCandidate.candidate != null && topSize > bottomSize) {
-        candidate = topCandidate;
-      } else if (bottomCandidate.candidate != null) {
-        candidate = bottomCandidate;
-      }
+      MaximizeCandidate candidate = pickCandidate(leftCandidate, sizes[0], rightCandidate, sizes[1], topCandidate, sizes[2],
+                                                  bottomCandidate, sizes[3]);
       if (candidate != null) {
         candidate.containingTabs.add(candidate.direction.getTab(area));
+        if (inPlace)
+          candidate.apply(area, algebraData);
         area = candidate.candidate;
         algebraData = candidate.data;
       }
     }
   }
+
+  /**
+   * Chooses the largest candidate. The choice only depends on the sizes, not on the order in which the candidates have been
+   * evaluated. A candidate has to be strictly larger than the candidates after it, i.e. a tie is won by the candidate that comes
+   * later in the order left, right, top, bottom.
+   */
+  static private MaximizeCandidate pickCandidate(MaximizeCandidate leftCandidate, double leftSize,
+                                                 MaximizeCandidate rightCandidate, double rightSize,
+                                                 MaximizeCandidate topCandidate, double topSize,
+                                                 MaximizeCandidate bottomCandidate, double bottomSize) {
+    if (leftCandidate.candidate != null && leftSize > rightSize && leftSize > topSize && leftSize > bottomSize)
+      return leftCandidate;
+    if (rightCandidate.candidate != null && rightSize > topSize && rightSize > bottomSize)
+      return rightCandidate;
+    if (topCandidate.candidate != null && topSize > bottomSize)
+      return topCandidate;
+    if (bottomCandidate.candidate != null)
+      return bottomCandidate;
+    return null;
+  }
 }
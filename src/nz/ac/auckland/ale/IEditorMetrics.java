@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+
+/**
+ * Receives the time spent in the phases of the LayoutEditor.
+ *
+ * The editor only measures the time if isEnabled() returns true. Implementations may be called from the feedback thread and the
+ * EDT at the same time.
+ */
+public interface IEditorMetrics {
+  enum Phase {
+    // finding the areas and tabs under the cursor
+    HIT_TEST,
+    // cloning the AlgebraData for a probe
+    CLONE,
+    MINIMIZE,
+    MAXIMIZE,
+    // snapping the dragged rect to the tabs of the target area
+    SNAP,
+    // detecting an edit operation, recorded per operation type
+    DETECT,
+    // performing an edit operation, recorded per operation type
+    PERFORM,
+    // painting the feedback in the designer
+    PAINT
+  }
+
+  IEditorMetrics NONE = new IEditorMetrics() {
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public void record(Phase phase, Class<? extends IEditOperation> operationType, long nanos) {
+    }
+  };
+
+  boolean isEnabled();
+
+  /**
+   * @param operationType the type of the detected or performed operation, null if the phase is not specific to an operation
+   */
+  void record(Phase phase, Class<? extends IEditOperation> operationType, long nanos);
+}
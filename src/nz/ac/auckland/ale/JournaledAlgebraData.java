@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.EmptySpace;
+import nz.ac.auckland.alm.IArea;
+import nz.ac.auckland.alm.LayoutSpec;
+import nz.ac.auckland.alm.XTab;
+import nz.ac.auckland.alm.YTab;
+import nz.ac.auckland.alm.algebra.AlgebraData;
+import nz.ac.auckland.alm.algebra.IDirection;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * AlgebraData that can undo changes.
+ *
+ * While a savepoint is open all added and removed areas are recorded together with the tabs they had at that moment. The tiling
+ * algebra only changes the tabs of areas that are not in the data ("remove items before editing them"), so this is enough to
+ * restore the data. A probe can thus change the data in place and roll back in time proportional to its changes instead of
+ * working on a clone.
+ */
+class JournaledAlgebraData extends AlgebraData {
+  static private class Entry {
+    final boolean added;
+    final IArea area;
+    final XTab left;
+    final YTab top;
+    final XTab right;
+    final YTab bottom;
+
+    Entry(boolean added, IArea area) {
+      this.added = added;
+      this.area = area;
+      this.left = area.getLeft();
+      this.top = area.getTop();
+      this.right = area.getRight();
+      this.bottom = area.getBottom();
+    }
+
+    void restoreTabs() {
+      DIRECTION.setTabs(area, left, top, right, bottom);
+    }
+  }
+
+  // getTab, getOrthogonalTab1, getOppositeTab and getOrthogonalTab2 of the left direction are left, top, right and bottom
+  static final private IDirection<XTab, YTab> DIRECTION = Directions.LEFT;
+
+  // null while the super constructor adds the initial areas
+  private List<Entry> journal;
+  // the journal sizes of the open savepoints, innermost last
+  private int[] savepoints = new int[4];
+  private int openSavepoints = 0;
+
+  public JournaledAlgebraData(LayoutSpec layoutSpec) {
+    super(layoutSpec, null);
+    journal = new ArrayList<Entry>();
+  }
+
+  public JournaledAlgebraData(XTab left, YTab top, XTab right, YTab bottom) {
+    super(left, top, right, bottom);
+    journal = new ArrayList<Entry>();
+  }
+
+  @Override
+  public void addArea(IArea area) {
+    if (openSavepoints > 0)
+      journal.add(new Entry(true, area));
+    super.addArea(area);
+  }
+
+  @Override
+  public void removeArea(IArea area) {
+    if (openSavepoints > 0)
+      journal.add(new Entry(false, area));
+    super.removeArea(area);
+  }
+
+  /**
+   * Starts recording the changes. Every savepoint has to be closed by either rollback or release, innermost first.
+   *
+   * @return the savepoint
+   */
+  public int savepoint() {
+    if (openSavepoints == savepoints.length) {
+      int[] grown = new int[savepoints.length * 2];
+      System.arraycopy(savepoints, 0, grown, 0, openSavepoints);
+      savepoints = grown;
+    }
+    savepoints[openSavepoints] = journal.size();
+    openSavepoints++;
+    return journal.size();
+  }
+
+  /**
+   * Undoes all changes since the savepoint and closes it.
+   *
+   * @throws IllegalStateException if savepoint is not the innermost open savepoint
+   */
+  public void rollback(int savepoint) {
+    checkInnermost(savepoint);
+    int recording = openSavepoints;
+    openSavepoints = 0;
+    for (int i = journal.size() - 1; i >= savepoint; i--) {
+      Entry entry = journal.remove(i);
+      entry.restoreTabs();
+      if (entry.added)
+        super.removeArea(entry.area);
+      else
+        super.addArea(entry.area);
+    }
+    openSavepoints = recording;
+    close();
+  }
+
+  /**
+   * Keeps the changes since the savepoint and closes it. The changes are still undone by the rollback of an outer savepoint.
+   *
+   * @throws IllegalStateException if savepoint is not the innermost open savepoint
+   */
+  public void release(int savepoint) {
+    checkInnermost(savepoint);
+    close();
+  }
+
+  /**
+   * Lists the empty spaces that have been changed since the savepoint. A space that has been removed and added again is listed as
+   * added, its tabs may have changed.
+   *
+   * @param added receives the spaces that are in the data now
+   * @param removed receives the spaces that have been removed from the data, may be null
+   */
+  public void getEmptySpaceChanges(int savepoint, List<EmptySpace> added, List<EmptySpace> removed) {
+    // the last entry of a space tells if it is in the data
+    Map<EmptySpace, Boolean> changes = new IdentityHashMap<EmptySpace, Boolean>();
+    for (int i = savepoint; i < journal.size(); i++) {
+      Entry entry = journal.get(i);
+      if (entry.area instanceof EmptySpace)
+        changes.put((EmptySpace)entry.area, entry.added);
+    }
+    for (Map.Entry<EmptySpace, Boolean> change : changes.entrySet()) {
+      if (change.getValue())
+        added.add(change.getKey());
+      else if (removed != null)
+        removed.add(change.getKey());
+    }
+  }
+
+  private void checkInnermost(int savepoint) {
+    if (openSavepoints == 0)
+      throw new IllegalStateException("No open savepoint");
+    if (savepoints[openSavepoints - 1] != savepoint)
+      throw new IllegalStateException("Savepoint " + savepoint + " is not the innermost open savepoint");
+  }
+
+  private void close() {
+    openSavepoints--;
+    if (openSavepoints == 0)
+      journal.clear();
+  }
+}
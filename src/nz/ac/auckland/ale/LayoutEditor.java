@@ -17,17 +17,52 @@ package nz.ac.auckland.ale;
 
 import nz.ac.auckland.alm.*;
 import nz.ac.auckland.alm.algebra.AlgebraData;
+import nz.ac.auckland.alm.algebra.Edge;
 import nz.ac.auckland.alm.algebra.EmptyAreaCleaner;
+import nz.ac.auckland.alm.algebra.IDirection;
 import nz.ac.auckland.linsolve.Variable;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 
 public class LayoutEditor {
   final LayoutSpec layoutSpec;
   private Area createdArea;
-  private AlgebraData algebraData;
-  IEditOperation currentEditOperation;
-  // view / model coordinates
+  // revision createdArea has been created at
+  private int createdAreaRevision;
+  private JournaledAlgebraData algebraData;
+  // spatial indices of the areas in algebraData, built on demand
+  private RectIndex<Area> areaIndex;
+  private RectIndex<Area> contentAreaIndex;
+  private RectIndex<EmptySpace> emptySpaceIndex;
+  private TabIndex<XTab> xTabIndex;
+  private TabIndex<YTab> yTabIndex;
+  // chain indices of algebraData by direction class
+  private final Map<Class<?>, ChainIndex<?>> chainIndices = new HashMap<Class<?>, ChainIndex<?>>();
+  // drag session cache: the last detected drag operation and the key it has been detected for
+  private final DragKey dragKey = new DragKey();
+  private final DragKey cachedDragKey = new DragKey();
+  private IEditOperation cachedDragOperation;
+  // maximal empty areas of the current revision, for the area moved last
+  private EmptyAreaCatalogue emptyAreaCatalogue;
+  // results of the current resize gesture
+  private ResizeSession resizeSession;
+  // state of the layout at the start of the current transaction, transactionTabValues is null if there is no transaction
+  private int transactionSavepoint;
+  private Map<Variable, Double> transactionTabValues;
+  private Area transactionCreatedArea;
+  // set by the detection, which may run on a different thread than perform()
+  volatile IEditOperation currentEditOperation;
+  private IEditorMetrics metrics = IEditorMetrics.NONE;
+  // incremented on every change of the layout
+  private int revision = 0;
+  // view / model coordinates, i.e. view pixels per model unit, as used by the detection
   float modelViewScale = 1;
+  // set by the designer, e.g. on zoom, and applied at the start of the next detection
+  private volatile float pendingModelViewScale = 1;
   // tab width in view coordinates
   float tabWidthView = 8;
   float detachThresholdView = 80;
@@ -41,12 +76,44 @@ public class LayoutEditor {
     return createdArea;
   }
 
+  public void setMetrics(IEditorMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public IEditorMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * The revision changes whenever the layout is changed through the editor, i.e. by an operation, a rollback or a reload.
+   */
+  public int getRevision() {
+    return revision;
+  }
+
+  /**
+   * Sets the view / model scale, e.g. after a zoom. Can be called while a detection runs on a different thread: the new scale is
+   * applied at the start of the next detection, which rescales the thresholds and drops the detection state that depends on them.
+   */
   public void setModelViewScale(float modelViewScale) {
-    this.modelViewScale = modelViewScale;
+    this.pendingModelViewScale = modelViewScale;
   }
 
+  /**
+   * @return the scale last set, it may not have been applied to the detection yet
+   */
   public float getModelViewScale() {
-    return modelViewScale;
+    return pendingModelViewScale;
+  }
+
+  private void applyModelViewScale() {
+    float scale = pendingModelViewScale;
+    if (scale == modelViewScale)
+      return;
+    modelViewScale = scale;
+    // the snap distance and the tab hit tests of the cached results depend on the scale; the empty areas don't
+    cachedDragOperation = null;
+    resizeSession = null;
   }
 
   public void setTabWidthView(float tabWidthView) {
@@ -58,7 +125,7 @@ public class LayoutEditor {
   }
 
   public float getDetachThresholdModel() {
-    return detachThresholdView * getModelViewScale();
+    return detachThresholdView / modelViewScale;
   }
 
   public void setSnapView(float snapView) {
@@ -66,7 +133,7 @@ public class LayoutEditor {
   }
 
   public float getSnapModel() {
-    return snapView * getModelViewScale();
+    return snapView / modelViewScale;
   }
 
   public boolean canPerform() {
@@ -75,17 +142,170 @@ public class LayoutEditor {
     return false;
   }
 
+  /**
+   * Performs the current edit operation.
+   *
+   * The AlgebraData is kept after the operation: the operations add and remove areas through the AlgebraData, which keeps its tab
+   * edges up to date. Thus, the following operation can continue to use it without rebuilding it from the LayoutSpec. How the cost
+   * of an update scales with the layout size depends on the alm library, see EdgeMapBenchmark.
+   */
   public void perform() {
-    currentEditOperation.perform();
+    perform(currentEditOperation);
+  }
 
-    EmptyAreaCleaner.clean(algebraData);
-    algebraData.applyToLayoutSpec(layoutSpec);
-    algebraData = null;
+  /**
+   * Performs the given edit operation. Inside a transaction the empty spaces are not cleaned and the LayoutSpec is not updated
+   * before the transaction is committed. If the operation fails the transaction is rolled back.
+   */
+  public void perform(IEditOperation operation) {
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    JournaledAlgebraData data = getJournaledAlgebraData();
+    // the journal tells which empty spaces the operation changed
+    int savepoint = data.savepoint();
+    try {
+      try {
+        operation.perform();
+        if (!isInTransaction()) {
+          EmptyAreaCleaner.clean(data);
+          data.applyToLayoutSpec(layoutSpec);
+        }
+        patchEmptySpaceIndex(data, savepoint);
+      }
+      finally {
+        data.release(savepoint);
+      }
+    }
+    catch (RuntimeException e) {
+      if (isInTransaction())
+        rollbackTransaction();
+      throw e;
+    }
+    revision++;
+    updateIndices(operation);
+    cachedDragOperation = null;
+    emptyAreaCatalogue = null;
+    resizeSession = null;
+    if (metrics.isEnabled())
+      metrics.record(IEditorMetrics.Phase.PERFORM, operation.getClass(), System.nanoTime() - start);
+  }
+
+  public boolean isInTransaction() {
+    return transactionTabValues != null;
+  }
+
+  /**
+   * Starts a transaction. The following operations are performed on the AlgebraData only; the empty spaces are cleaned and the
+   * result is applied to the LayoutSpec once in commitTransaction().
+   *
+   * The transaction holds a savepoint of the AlgebraData, so a rollback restores the areas and the empty spaces alike.
+   */
+  public void beginTransaction() {
+    if (isInTransaction())
+      throw new IllegalStateException("Transaction already started");
+    JournaledAlgebraData data = getJournaledAlgebraData();
+    transactionTabValues = new HashMap<Variable, Double>();
+    for (IArea area : layoutSpec.getAreas()) {
+      transactionTabValues.put(area.getLeft(), area.getLeft().getValue());
+      transactionTabValues.put(area.getTop(), area.getTop().getValue());
+      transactionTabValues.put(area.getRight(), area.getRight().getValue());
+      transactionTabValues.put(area.getBottom(), area.getBottom().getValue());
+    }
+    transactionCreatedArea = createdArea;
+    transactionSavepoint = data.savepoint();
+  }
+
+  public void commitTransaction() {
+    if (!isInTransaction())
+      throw new IllegalStateException("No transaction started");
+    JournaledAlgebraData data = getJournaledAlgebraData();
+    try {
+      int savepoint = data.savepoint();
+      try {
+        EmptyAreaCleaner.clean(data);
+        data.applyToLayoutSpec(layoutSpec);
+        patchEmptySpaceIndex(data, savepoint);
+      }
+      finally {
+        data.release(savepoint);
+      }
+    }
+    catch (RuntimeException e) {
+      rollbackTransaction();
+      throw e;
+    }
+    data.release(transactionSavepoint);
+    endTransaction();
+    // cleaning replaced empty spaces
+    cachedDragOperation = null;
+    emptyAreaCatalogue = null;
+  }
+
+  /**
+   * Restores the areas and the empty spaces as they have been when the transaction started.
+   */
+  public void rollbackTransaction() {
+    if (!isInTransaction())
+      throw new IllegalStateException("No transaction started");
+    getJournaledAlgebraData().rollback(transactionSavepoint);
+    for (Map.Entry<Variable, Double> entry : transactionTabValues.entrySet())
+      entry.getKey().setValue(entry.getValue());
+    createdArea = transactionCreatedArea;
+    endTransaction();
+    revision++;
+
+    invalidateIndices();
+    currentEditOperation = null;
+    cachedDragOperation = null;
+  }
+
+  private void endTransaction() {
+    transactionTabValues = null;
+    transactionCreatedArea = null;
+  }
+
+  /**
+   * Updates the empty space index with the empty spaces that have been added to or removed from the data since the savepoint.
+   */
+  private void patchEmptySpaceIndex(JournaledAlgebraData data, int savepoint) {
+    if (emptySpaceIndex == null)
+      return;
+    List<EmptySpace> addedSpaces = new ArrayList<EmptySpace>();
+    List<EmptySpace> removedSpaces = new ArrayList<EmptySpace>();
+    data.getEmptySpaceChanges(savepoint, addedSpaces, removedSpaces);
+    for (EmptySpace space : removedSpaces)
+      emptySpaceIndex.remove(space);
+    for (EmptySpace space : addedSpaces)
+      emptySpaceIndex.add(space);
+    if (emptySpaceIndex.isCrowded())
+      emptySpaceIndex = null;
+  }
+
+  private void updateIndices(IEditOperation operation) {
+    xTabIndex = null;
+    yTabIndex = null;
+    chainIndices.clear();
+    List<Area> changedAreas = null;
+    if (operation instanceof AbstractEditOperation)
+      changedAreas = ((AbstractEditOperation)operation).getChangedAreas();
+    if (changedAreas == null) {
+      areaIndex = null;
+      contentAreaIndex = null;
+      return;
+    }
+    for (Area area : changedAreas) {
+      if (areaIndex != null)
+        areaIndex.add(area);
+      if (contentAreaIndex != null)
+        contentAreaIndex.add(area);
+    }
   }
 
   private Area ensureSourceArea(Area area) {
     if (area != null)
       return area;
+    // keep the placeholder while the layout is unchanged, the detection caches, e.g. the empty area catalogue, are keyed by it
+    if (createdArea != null && createdAreaRevision == revision)
+      return createdArea;
 
     XTab left = new XTab();
     left.setValue(-10);
@@ -96,6 +316,7 @@ public class LayoutEditor {
     YTab bottom = new YTab();
     bottom.setValue(-5);
     createdArea = new Area(left, top, right, bottom);
+    createdAreaRevision = revision;
     return createdArea;
   }
 
@@ -109,63 +330,232 @@ public class LayoutEditor {
    * @return null if no suitable operation has been found
    */
   public IEditOperation detectDragOperation(Area movedArea, Area.Rect dragRect, float dragX, float dragY) {
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    applyModelViewScale();
+    Area mouseOver = findAreaAt(dragX, dragY);
+    fillDragKey(dragKey, movedArea, mouseOver, dragX, dragY);
+    if (metrics.isEnabled())
+      metrics.record(IEditorMetrics.Phase.HIT_TEST, null, System.nanoTime() - start);
+    if (cachedDragOperation != null && cachedDragKey.matches(dragKey)) {
+      // same tile as before: only the cheap, position dependent parts have to be updated
+      if (cachedDragOperation instanceof MoveOperation)
+        ((MoveOperation)cachedDragOperation).updateTargetArea(dragRect);
+      else if (cachedDragOperation instanceof MoveBetweenOperation)
+        ((MoveBetweenOperation)cachedDragOperation).updateInsertPosition(dragX, dragY);
+      currentEditOperation = cachedDragOperation;
+    } else {
+      currentEditOperation = detectDragOperation(movedArea, mouseOver, dragRect, dragX, dragY);
+      cachedDragKey.set(dragKey);
+      cachedDragOperation = currentEditOperation;
+    }
+    if (metrics.isEnabled() && currentEditOperation != null)
+      metrics.record(IEditorMetrics.Phase.DETECT, currentEditOperation.getClass(), System.nanoTime() - start);
+    return currentEditOperation;
+  }
+
+  private void fillDragKey(DragKey key, Area movedArea, Area mouseOver, float dragX, float dragY) {
+    key.movedArea = movedArea;
+    key.mouseOver = mouseOver;
+    key.contentMouseOver = null;
+    key.overTabs = 0;
+    if (mouseOver != null) {
+      if (movedArea != null)
+        key.contentMouseOver = findContentAreaAt(dragX, dragY);
+      if (isOverTab(mouseOver.getLeft(), dragX))
+        key.overTabs |= DragKey.OVER_LEFT;
+      if (isOverTab(mouseOver.getTop(), dragY))
+        key.overTabs |= DragKey.OVER_TOP;
+      if (isOverTab(mouseOver.getRight(), dragX))
+        key.overTabs |= DragKey.OVER_RIGHT;
+      if (isOverTab(mouseOver.getBottom(), dragY))
+        key.overTabs |= DragKey.OVER_BOTTOM;
+    }
+    TabIndex<XTab> xTabs = getXTabIndex();
+    key.xSmaller = xTabs.lastSmaller(dragX);
+    key.xLarger = xTabs.firstLarger(dragX);
+    TabIndex<YTab> yTabs = getYTabIndex();
+    key.ySmaller = yTabs.lastSmaller(dragY);
+    key.yLarger = yTabs.firstLarger(dragY);
+  }
+
+  private IEditOperation detectDragOperation(Area movedArea, Area mouseOver, Area.Rect dragRect, float dragX, float dragY) {
     Area sourceArea = ensureSourceArea(movedArea);
 
-    Area mouseOver = findAreaAt(dragX, dragY);
     if (mouseOver != null) {
       // insert between
-      currentEditOperation = new MoveBetweenOperation(this, sourceArea, mouseOver, dragX, dragY);
-      if (currentEditOperation.canPerform())
-        return currentEditOperation;
+      IEditOperation operation = new MoveBetweenOperation(this, sourceArea, mouseOver, dragX, dragY);
+      if (operation.canPerform())
+        return operation;
       if (movedArea != null) {
         // swap
         mouseOver = findContentAreaAt(dragX, dragY);
         if (mouseOver != null) {
-          currentEditOperation = new SwapOperation(this, movedArea, mouseOver);
-          if (currentEditOperation.canPerform()) return currentEditOperation;
+          operation = new SwapOperation(this, movedArea, mouseOver);
+          if (operation.canPerform()) return operation;
         }
       }
     }
 
-    currentEditOperation = new MoveOperation(this, sourceArea, dragRect, dragX, dragY);
-
-    return currentEditOperation;
+    return new MoveOperation(this, sourceArea, dragRect, dragX, dragY);
   }
 
   public IEditOperation detectResizeOperation(Area moveArea, XTab movedXTab, YTab movedYTab, float dragX, float dragY) {
-    currentEditOperation = new ResizeOperation(this, moveArea, movedXTab, movedYTab, dragX, dragY);
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    applyModelViewScale();
+    ResizeSession session = getResizeSession(moveArea, movedXTab, movedYTab);
+    if (session.operation != null)
+      session.operation.update(dragX, dragY);
+    else
+      session.operation = new ResizeOperation(this, moveArea, movedXTab, movedYTab, dragX, dragY);
+    currentEditOperation = session.operation;
+    if (metrics.isEnabled())
+      metrics.record(IEditorMetrics.Phase.DETECT, ResizeOperation.class, System.nanoTime() - start);
     return currentEditOperation;
   }
 
+  /**
+   * The session of the resize gesture for the given area and tabs. A resize of a different area or tab starts a new session.
+   */
+  ResizeSession getResizeSession(Area resizeArea, XTab xTab, YTab yTab) {
+    if (resizeSession == null || !resizeSession.matches(resizeArea, xTab, yTab))
+      resizeSession = new ResizeSession(resizeArea, xTab, yTab);
+    return resizeSession;
+  }
+
   public IEditOperation getDeleteOperation(Area area) {
     return new RemoveOperation(this, area);
   }
 
   public boolean isOverTab(Variable tab, float modelCoordinate) {
     double diff = Math.abs(tab.getValue() - modelCoordinate);
-    return diff * getModelViewScale() < tabWidthView;
+    return diff * modelViewScale < tabWidthView;
   }
 
   public AlgebraData getAlgebraData() {
-    if (algebraData == null)
-      algebraData = new AlgebraData(layoutSpec, null);
+    return getJournaledAlgebraData();
+  }
+
+  /**
+   * Probes can use the journal to change the data in place and undo their changes afterwards.
+   */
+  JournaledAlgebraData getJournaledAlgebraData() {
+    if (algebraData == null) {
+      algebraData = new JournaledAlgebraData(layoutSpec);
+      invalidateIndices();
+    }
     return algebraData;
   }
 
-  public Area findContentAreaAt(float x, float y) {
-    for (Area area : getAlgebraData().getAreas()) {
-      if (area.getContentRect().contains(x, y))
-        return area;
+  /**
+   * Drops the AlgebraData and all cached detection state. Has to be called when the tab values of the LayoutSpec have been changed
+   * from outside, e.g. after the layout has been solved again. Must not run concurrently to a detection.
+   */
+  public void reload() {
+    if (isInTransaction())
+      throw new IllegalStateException("Can't reload during a transaction");
+    revision++;
+    algebraData = null;
+    invalidateIndices();
+    currentEditOperation = null;
+    cachedDragOperation = null;
+  }
+
+  private void invalidateIndices() {
+    areaIndex = null;
+    contentAreaIndex = null;
+    emptySpaceIndex = null;
+    xTabIndex = null;
+    yTabIndex = null;
+    chainIndices.clear();
+    emptyAreaCatalogue = null;
+    resizeSession = null;
+  }
+
+  private RectIndex<Area> getAreaIndex() {
+    if (areaIndex == null) {
+      areaIndex = new RectIndex<Area>(getAlgebraData().getAreas(), new RectIndex.IRectProvider<Area>() {
+        @Override
+        public Area.Rect getRect(Area area) {
+          return area.getRect();
+        }
+      });
     }
-    return null;
+    return areaIndex;
   }
 
-  public Area findAreaAt(float x, float y) {
-    for (Area area : getAlgebraData().getAreas()) {
-      if (area.getRect().contains(x, y))
-        return area;
+  private RectIndex<Area> getContentAreaIndex() {
+    if (contentAreaIndex == null) {
+      contentAreaIndex = new RectIndex<Area>(getAlgebraData().getAreas(), new RectIndex.IRectProvider<Area>() {
+        @Override
+        public Area.Rect getRect(Area area) {
+          return area.getContentRect();
+        }
+      });
+    }
+    return contentAreaIndex;
+  }
+
+  TabIndex<XTab> getXTabIndex() {
+    if (xTabIndex == null)
+      xTabIndex = new TabIndex<XTab>(getAlgebraData().getSortedXTabs());
+    return xTabIndex;
+  }
+
+  TabIndex<YTab> getYTabIndex() {
+    if (yTabIndex == null)
+      yTabIndex = new TabIndex<YTab>(getAlgebraData().getSortedYTabs());
+    return yTabIndex;
+  }
+
+  /**
+   * Chain index in the given direction.
+   *
+   * @param edges the x or y tab edges of getAlgebraData() that match the direction
+   */
+  <Tab extends Variable> ChainIndex<Tab> getChainIndex(Map<Tab, Edge> edges, IDirection<Tab, ?> direction) {
+    // the index of a direction class is always built for the tabs of that direction
+    @SuppressWarnings("unchecked")
+    ChainIndex<Tab> index = (ChainIndex<Tab>)chainIndices.get(direction.getClass());
+    if (index == null) {
+      index = new ChainIndex<Tab>(edges, direction);
+      chainIndices.put(direction.getClass(), index);
+    }
+    return index;
+  }
+
+  /**
+   * Index over the empty spaces of getAlgebraData(). Clones made by cloneWithReplacedEmptySpaces share the tabs of the empty
+   * spaces, thus, the index can be used to look up the empty spaces of such clones, see EmptyAreaCatalogue. perform() patches the
+   * index with the empty spaces the operation added and removed.
+   */
+  RectIndex<EmptySpace> getEmptySpaceIndex() {
+    if (emptySpaceIndex == null) {
+      emptySpaceIndex = new RectIndex<EmptySpace>(getAlgebraData().getEmptySpaces(), new RectIndex.IRectProvider<EmptySpace>() {
+        @Override
+        public Area.Rect getRect(EmptySpace emptySpace) {
+          return emptySpace.getRect();
+        }
+      });
     }
-    return null;
+    return emptySpaceIndex;
+  }
+
+  /**
+   * The maximal empty areas of the current layout if the given area is moved. The catalogue is kept until the layout changes or
+   * another area is moved.
+   */
+  EmptyAreaCatalogue getEmptyAreaCatalogue(Area movedArea) {
+    if (emptyAreaCatalogue == null || emptyAreaCatalogue.getMovedArea() != movedArea)
+      emptyAreaCatalogue = new EmptyAreaCatalogue(this, movedArea);
+    return emptyAreaCatalogue;
+  }
+
+  public Area findContentAreaAt(float x, float y) {
+    return getContentAreaIndex().find(x, y);
+  }
+
+  public Area findAreaAt(float x, float y) {
+    return getAreaIndex().find(x, y);
   }
 
   static public AlgebraData cloneWithReplacedEmptySpaces(AlgebraData algebraData) {
@@ -178,8 +568,8 @@ public class LayoutEditor {
     assert old == null || old.getRight() == replacement.getRight();
     assert old == null || old.getBottom() == replacement.getBottom();
 
-    AlgebraData clone = new AlgebraData(layoutStructure.getLeft(), layoutStructure.getTop(), layoutStructure.getRight(),
-                                        layoutStructure.getBottom());
+    AlgebraData clone = new JournaledAlgebraData(layoutStructure.getLeft(), layoutStructure.getTop(), layoutStructure.getRight(),
+                                                 layoutStructure.getBottom());
     for (Area area : layoutStructure.getAreas())
       clone.addArea(area);
 
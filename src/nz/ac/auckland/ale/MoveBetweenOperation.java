@@ -32,24 +32,36 @@ public class MoveBetweenOperation extends AbstractEditOperation {
     this.movedArea = movedArea;
     this.targetArea = mouseOverArea;
 
-    AlgebraData layoutStructure = layoutEditor.getAlgebraData();
-    EmptySpace space = TilingAlgebra.makeAreaEmpty(layoutStructure, movedArea);
+    // probe in place, the journal restores the live data afterwards
+    JournaledAlgebraData layoutStructure = layoutEditor.getJournaledAlgebraData();
+    int savepoint = layoutStructure.savepoint();
+    try {
+      TilingAlgebra.makeAreaEmpty(layoutStructure, movedArea);
 
-    if (layoutEditor.isOverTab(targetArea.getLeft(), x)) {
-      direction = new LeftDirection();
-      orthInsertPosition = y;
-    } else if (layoutEditor.isOverTab(targetArea.getRight(), x)) {
-      direction = new RightDirection();
-      orthInsertPosition = y;
-    } else if (layoutEditor.isOverTab(targetArea.getTop(), y)) {
-      direction = new TopDirection();
-      orthInsertPosition = x;
-    } else if (layoutEditor.isOverTab(targetArea.getBottom(), y)) {
-      direction = new BottomDirection();
-      orthInsertPosition = x;
+      if (layoutEditor.isOverTab(targetArea.getLeft(), x)) {
+        direction = Directions.LEFT;
+        orthInsertPosition = y;
+      } else if (layoutEditor.isOverTab(targetArea.getRight(), x)) {
+        direction = Directions.RIGHT;
+        orthInsertPosition = y;
+      } else if (layoutEditor.isOverTab(targetArea.getTop(), y)) {
+        direction = Directions.TOP;
+        orthInsertPosition = x;
+      } else if (layoutEditor.isOverTab(targetArea.getBottom(), y)) {
+        direction = Directions.BOTTOM;
+        orthInsertPosition = x;
+      }
     }
+    finally {
+      layoutStructure.rollback(savepoint);
+    }
+  }
 
-    TilingAlgebra.addAreaAtEmptySpace(layoutStructure, movedArea, space);
+  void updateInsertPosition(float x, float y) {
+    if (direction instanceof LeftDirection || direction instanceof RightDirection)
+      orthInsertPosition = y;
+    else
+      orthInsertPosition = x;
   }
 
   @Override
@@ -93,6 +105,8 @@ public class MoveBetweenOperation extends AbstractEditOperation {
       structure.addArea(newSpace);
   }
 
+  private Feedback feedback;
+
   public class Feedback implements IEditOperationFeedback {
     public Area getTargetArea() {
       return targetArea;
@@ -105,6 +119,9 @@ public class MoveBetweenOperation extends AbstractEditOperation {
 
   @Override
   public IEditOperationFeedback getFeedback() {
-    return new Feedback();
+    // the feedback only reads the operation, so one instance is enough
+    if (feedback == null)
+      feedback = new Feedback();
+    return feedback;
   }
 }
@@ -22,11 +22,47 @@ import nz.ac.auckland.alm.YTab;
 import nz.ac.auckland.alm.algebra.*;
 import nz.ac.auckland.linsolve.Variable;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class MoveOperation extends AbstractEditOperation {
+  /**
+   * The target area. Tabs for sides that don't snap are created once; they only become part of the layout if the operation is
+   * performed.
+   */
+  static private class TargetBuffer {
+    final AreaCandidate area = new AreaCandidate();
+    private XTab freeLeft;
+    private YTab freeTop;
+    private XTab freeRight;
+    private YTab freeBottom;
+
+    XTab getFreeLeft() {
+      if (freeLeft == null)
+        freeLeft = new XTab();
+      return freeLeft;
+    }
+
+    YTab getFreeTop() {
+      if (freeTop == null)
+        freeTop = new YTab();
+      return freeTop;
+    }
+
+    XTab getFreeRight() {
+      if (freeRight == null)
+        freeRight = new XTab();
+      return freeRight;
+    }
+
+    YTab getFreeBottom() {
+      if (freeBottom == null)
+        freeBottom = new YTab();
+      return freeBottom;
+    }
+  }
+
   final private Area movedArea;
+  final private TargetBuffer targetBuffer = new TargetBuffer();
   AreaCandidate targetArea;
   EmptyAreaFinder emptyAreaFinder;
 
@@ -35,27 +71,36 @@ public class MoveOperation extends AbstractEditOperation {
 
     this.movedArea = movedArea;
 
-    AlgebraData clone = LayoutEditor.cloneWithReplacedEmptySpaces(layoutEditor.getAlgebraData(), null, null);
-    if (TilingAlgebra.makeAreaEmpty(clone, movedArea) != null)
-      EmptyAreaCleaner.clean(clone);
+    // the finder is shared with the catalogue and is only read
+    emptyAreaFinder = layoutEditor.getEmptyAreaCatalogue(movedArea).find(dragX, dragY);
+    if (emptyAreaFinder == null)
+      return;
+    findTargetArea(dragRect, layoutEditor.getSnapModel());
+  }
 
-    emptyAreaFinder = new EmptyAreaFinder(clone);
-    if (!emptyAreaFinder.find(dragX, dragY)) {
-      emptyAreaFinder = null;
+  /**
+   * Places the dragged rect again in the same maximal empty area, e.g. after the rect has been moved within the same tab cell.
+   */
+  void updateTargetArea(Area.Rect dragRect) {
+    if (emptyAreaFinder == null)
       return;
-    }
     findTargetArea(dragRect, layoutEditor.getSnapModel());
   }
 
   private void findTargetArea(Area.Rect rect, float snapDistance) {
+    IEditorMetrics metrics = layoutEditor.getMetrics();
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
     EmptySpace maxArea = emptyAreaFinder.getMaxArea();
-    targetArea = new AreaCandidate();
+    TargetBuffer buffer = targetBuffer;
+    AreaCandidate targetArea = buffer.area;
 
     // place rect in it
-    targetArea.left = getClosestSnapTab(maxArea.getLeft(), maxArea.getRight(), emptyAreaFinder.getMaxAreaXTabs(), rect.left, snapDistance);
+    targetArea.left = getClosestSnapTab(maxArea.getLeft(), maxArea.getRight(), emptyAreaFinder.getMaxAreaXTabs(), rect.left,
+                                        snapDistance);
     targetArea.right = getClosestSnapTab(maxArea.getLeft(), maxArea.getRight(), emptyAreaFinder.getMaxAreaXTabs(), rect.right,
                                          snapDistance);
-    targetArea.top = getClosestSnapTab(maxArea.getTop(), maxArea.getBottom(), emptyAreaFinder.getMaxAreaYTabs(), rect.top, snapDistance);
+    targetArea.top = getClosestSnapTab(maxArea.getTop(), maxArea.getBottom(), emptyAreaFinder.getMaxAreaYTabs(), rect.top,
+                                       snapDistance);
     targetArea.bottom = getClosestSnapTab(maxArea.getTop(), maxArea.getBottom(), emptyAreaFinder.getMaxAreaYTabs(), rect.bottom,
                                           snapDistance);
 
@@ -63,10 +108,10 @@ public class MoveOperation extends AbstractEditOperation {
       targetArea.left = maxArea.getLeft();
       targetArea.right = maxArea.getRight();
     } else if (targetArea.left == null) {
-      targetArea.left = new XTab();
+      targetArea.left = buffer.getFreeLeft();
       targetArea.left.setValue(targetArea.right.getValue() - rect.getWidth());
     } else if (targetArea.right == null) {
-      targetArea.right = new XTab();
+      targetArea.right = buffer.getFreeRight();
       targetArea.right.setValue(targetArea.left.getValue() + rect.getWidth());
     }
 
@@ -74,22 +119,29 @@ public class MoveOperation extends AbstractEditOperation {
       targetArea.top = maxArea.getTop();
       targetArea.bottom = maxArea.getBottom();
     } else if (targetArea.top == null) {
-      targetArea.top = new YTab();
+      targetArea.top = buffer.getFreeTop();
       targetArea.top.setValue(targetArea.bottom.getValue() - rect.getHeight());
     } else if (targetArea.bottom == null) {
-      targetArea.bottom = new YTab();
+      targetArea.bottom = buffer.getFreeBottom();
       targetArea.bottom.setValue(targetArea.top.getValue() + rect.getHeight());
     }
+
+    this.targetArea = targetArea;
+    if (metrics.isEnabled())
+      metrics.record(IEditorMetrics.Phase.SNAP, null, System.nanoTime() - start);
   }
 
   private <Tab extends Variable> Tab getClosestSnapTab(Tab border1, Tab border2, List<Tab> tabs, float value, float snapDistance) {
-    List<Tab> allTabs = new ArrayList(tabs);
-    allTabs.add(border1);
-    allTabs.add(border2);
-
     Tab closest = null;
     float minDistance = Float.MAX_VALUE;
-    for (Tab tab : allTabs) {
+    for (int i = 0; i < tabs.size() + 2; i++) {
+      Tab tab;
+      if (i < tabs.size())
+        tab = tabs.get(i);
+      else if (i == tabs.size())
+        tab = border1;
+      else
+        tab = border2;
       float distance = (float)Math.abs(tab.getValue() - value);
       if (distance < snapDistance && distance < minDistance) {
         minDistance = distance;
@@ -128,6 +180,8 @@ public class MoveOperation extends AbstractEditOperation {
     FillGap.fill(algebraData, initLeft, initTop, initRight, initBottom);
   }
 
+  private Feedback feedback;
+
   public class Feedback implements IEditOperationFeedback {
     public AreaCandidate getTargetArea() {
       return targetArea;
@@ -152,6 +206,9 @@ public class MoveOperation extends AbstractEditOperation {
 
   @Override
   public IEditOperationFeedback getFeedback() {
-    return new Feedback();
+    // the feedback only reads the operation, so one instance is enough
+    if (feedback == null)
+      feedback = new Feedback();
+    return feedback;
   }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Keeps a histogram per phase and operation type. The buckets are powers of two nanoseconds.
+ */
+public class RecordingEditorMetrics implements IEditorMetrics {
+  static public class Histogram {
+    final long[] buckets = new long[64];
+    long count = 0;
+    long totalNanos = 0;
+    long maxNanos = 0;
+
+    void add(long nanos) {
+      nanos = Math.max(0, nanos);
+      buckets[63 - Long.numberOfLeadingZeros(nanos | 1)]++;
+      count++;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    /**
+     * @return upper bound of the bucket that contains the given percentile
+     */
+    public long getPercentileNanos(double percentile) {
+      long rank = (long)Math.ceil(count * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank && seen > 0)
+          return Math.min(maxNanos, (2L << i) - 1);
+      }
+      return maxNanos;
+    }
+  }
+
+  // sorted by key to get a stable dump
+  final private Map<String, Histogram> histograms = new TreeMap<String, Histogram>();
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public synchronized void record(Phase phase, Class<? extends IEditOperation> operationType, long nanos) {
+    String key = phase.name();
+    if (operationType != null)
+      key += " " + operationType.getSimpleName();
+    Histogram histogram = histograms.get(key);
+    if (histogram == null) {
+      histogram = new Histogram();
+      histograms.put(key, histogram);
+    }
+    histogram.add(nanos);
+  }
+
+  public synchronized Histogram getHistogram(Phase phase, Class<? extends IEditOperation> operationType) {
+    String key = phase.name();
+    if (operationType != null)
+      key += " " + operationType.getSimpleName();
+    return histograms.get(key);
+  }
+
+  public synchronized void clear() {
+    histograms.clear();
+  }
+
+  /**
+   * @return one line per phase and operation type with the count and the timings in microseconds
+   */
+  public synchronized String dump() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("%-32s %8s %10s %8s %8s %8s %8s%n", "phase", "count", "total", "mean", "p50", "p99", "max"));
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      Histogram histogram = entry.getValue();
+      builder.append(String.format("%-32s %8d %10.1f %8.1f %8.1f %8.1f %8.1f%n", entry.getKey(), histogram.count,
+                                   histogram.totalNanos / 1000.0, histogram.totalNanos / 1000.0 / histogram.count,
+                                   histogram.getPercentileNanos(50) / 1000.0, histogram.getPercentileNanos(99) / 1000.0,
+                                   histogram.maxNanos / 1000.0));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.Area;
+
+import java.util.*;
+
+
+/**
+ * Spatial index for point queries on a set of rectangles.
+ *
+ * The indexed region is split into a grid. The column and row borders are picked from the sorted rectangle borders so that every
+ * cell is touched by roughly the same number of rectangles. A point query is a binary search for the column and the row followed by
+ * a scan of the few rectangles in that cell.
+ *
+ * Items can be added and removed without rebuilding the grid. If more items than the grid was built for are added the cells get
+ * more crowded; rebuild the index in this case. The index stores the bounds of an item when it is added, so an item whose rect
+ * changes has to be added again.
+ */
+class RectIndex<T> {
+  interface IRectProvider<T> {
+    Area.Rect getRect(T item);
+  }
+
+  static class Entry<T> {
+    final T item;
+    final float left;
+    final float top;
+    final float right;
+    final float bottom;
+    // position in insertion order, used to return the same match as a linear scan over the item list would
+    final int order;
+
+    Entry(T item, Area.Rect rect, int order) {
+      this.item = item;
+      this.left = rect.left;
+      this.top = rect.top;
+      this.right = rect.right;
+      this.bottom = rect.bottom;
+      this.order = order;
+    }
+
+    boolean contains(float x, float y) {
+      return RectIndex.contains(left, top, right, bottom, x, y);
+    }
+  }
+
+  /**
+   * Same test as Area.Rect.contains: the left and the top edge belong to the rect, the right and the bottom edge don't. Thus, a
+   * point on a tab that is shared by two rects is only contained in one of them.
+   */
+  static boolean contains(float left, float top, float right, float bottom, float x, float y) {
+    return left < right && top < bottom && x >= left && x < right && y >= top && y < bottom;
+  }
+
+  final IRectProvider<T> rectProvider;
+  final float[] xBorders;
+  final float[] yBorders;
+  final List<Entry<T>>[] cells;
+  final Map<T, Entry<T>> entries = new IdentityHashMap<T, Entry<T>>();
+  // number of items the grid has been built for
+  final int capacity;
+  int nextOrder = 0;
+
+  @SuppressWarnings("unchecked")
+  public RectIndex(Collection<? extends T> items, IRectProvider<T> rectProvider) {
+    this.rectProvider = rectProvider;
+    this.capacity = items.size();
+
+    List<Entry<T>> initial = new ArrayList<Entry<T>>(items.size());
+    for (T item : items)
+      initial.add(new Entry<T>(item, rectProvider.getRect(item), nextOrder++));
+
+    int gridSize = Math.max(1, (int)Math.sqrt(initial.size()));
+    float[] xValues = new float[2 * initial.size()];
+    float[] yValues = new float[2 * initial.size()];
+    for (int i = 0; i < initial.size(); i++) {
+      Entry<T> entry = initial.get(i);
+      xValues[2 * i] = entry.left;
+      xValues[2 * i + 1] = entry.right;
+      yValues[2 * i] = entry.top;
+      yValues[2 * i + 1] = entry.bottom;
+    }
+    xBorders = pickBorders(xValues, gridSize);
+    yBorders = pickBorders(yValues, gridSize);
+
+    cells = new List[getColumnCount() * getRowCount()];
+    for (Entry<T> entry : initial)
+      insert(entry);
+  }
+
+  static private float[] pickBorders(float[] values, int gridSize) {
+    if (values.length == 0)
+      return new float[] {0, 0};
+    Arrays.sort(values);
+    float[] borders = new float[gridSize + 1];
+    int count = 0;
+    for (int i = 0; i <= gridSize; i++) {
+      float value = values[(int)((long)(values.length - 1) * i / gridSize)];
+      if (count > 0 && borders[count - 1] == value)
+        continue;
+      borders[count] = value;
+      count++;
+    }
+    if (count == 1) {
+      // degenerated, all values are the same
+      return new float[] {borders[0], borders[0]};
+    }
+    return Arrays.copyOf(borders, count);
+  }
+
+  private int getColumnCount() {
+    return xBorders.length - 1;
+  }
+
+  private int getRowCount() {
+    return yBorders.length - 1;
+  }
+
+  /**
+   * Returns the cell that contains the value. Values outside the borders are assigned to the first or the last cell.
+   */
+  static private int findCell(float[] borders, float value) {
+    int low = 0;
+    int high = borders.length - 1;
+    // find the first border that is larger than the value
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (borders[middle] > value)
+        high = middle;
+      else
+        low = middle + 1;
+    }
+    return Math.max(0, Math.min(low - 1, borders.length - 2));
+  }
+
+  /**
+   * Returns the last cell that touches the value from the left. In contrast to findCell a value that lies exactly on a border is
+   * assigned to the cell left of the border.
+   */
+  static private int findLastCell(float[] borders, float value) {
+    int cell = findCell(borders, value);
+    if (cell > 0 && borders[cell] == value)
+      return cell - 1;
+    return cell;
+  }
+
+  private void insert(Entry<T> entry) {
+    entries.put(entry.item, entry);
+    int firstColumn = findLastCell(xBorders, entry.left);
+    int lastColumn = findCell(xBorders, entry.right);
+    int firstRow = findLastCell(yBorders, entry.top);
+    int lastRow = findCell(yBorders, entry.bottom);
+    for (int column = firstColumn; column <= lastColumn; column++) {
+      for (int row = firstRow; row <= lastRow; row++) {
+        int cell = column * getRowCount() + row;
+        if (cells[cell] == null)
+          cells[cell] = new ArrayList<Entry<T>>(2);
+        cells[cell].add(entry);
+      }
+    }
+  }
+
+  public void add(T item) {
+    remove(item);
+    insert(new Entry<T>(item, rectProvider.getRect(item), nextOrder++));
+  }
+
+  public boolean remove(T item) {
+    Entry<T> entry = entries.remove(item);
+    if (entry == null)
+      return false;
+    int firstColumn = findLastCell(xBorders, entry.left);
+    int lastColumn = findCell(xBorders, entry.right);
+    int firstRow = findLastCell(yBorders, entry.top);
+    int lastRow = findCell(yBorders, entry.bottom);
+    for (int column = firstColumn; column <= lastColumn; column++) {
+      for (int row = firstRow; row <= lastRow; row++) {
+        List<Entry<T>> cell = cells[column * getRowCount() + row];
+        if (cell != null)
+          cell.remove(entry);
+      }
+    }
+    return true;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return true if the index holds many more items than the grid has been built for; it should be rebuilt then
+   */
+  public boolean isCrowded() {
+    return entries.size() > Math.max(16, 2 * capacity);
+  }
+
+  /**
+   * Finds the item that contains the point. If multiple items contain the point the item that has been added first is returned.
+   *
+   * @return null if there is no such item
+   */
+  public T find(float x, float y) {
+    List<Entry<T>> cell = cells[findCell(xBorders, x) * getRowCount() + findCell(yBorders, y)];
+    if (cell == null)
+      return null;
+    Entry<T> match = null;
+    for (int i = 0; i < cell.size(); i++) {
+      Entry<T> entry = cell.get(i);
+      if (match != null && match.order < entry.order)
+        continue;
+      if (!entry.contains(x, y))
+        continue;
+      match = entry;
+    }
+    if (match == null)
+      return null;
+    return match.item;
+  }
+}
@@ -17,6 +17,7 @@ package nz.ac.auckland.ale;
 
 import nz.ac.auckland.alm.Area;
 import nz.ac.auckland.alm.EmptySpace;
+import nz.ac.auckland.alm.IArea;
 import nz.ac.auckland.alm.XTab;
 import nz.ac.auckland.alm.YTab;
 import nz.ac.auckland.alm.algebra.*;
@@ -38,8 +39,9 @@ public class ResizeOperation extends AbstractEditOperation {
   boolean detachY = false;
   IDirection<XTab, YTab> xDirection;
   IDirection<YTab, XTab> yDirection;
+  final ResizeSession session;
 
-  class Candidate {
+  static class Candidate {
     public AlgebraData algebraData;
     public EmptySpace emptySpace;
   }
@@ -48,40 +50,71 @@ public class ResizeOperation extends AbstractEditOperation {
     super(layoutEditor);
 
     this.resizeArea = resizeArea;
+    session = layoutEditor.getResizeSession(resizeArea, xTab, yTab);
     if (xTab != null) {
       if (resizeArea.getLeft() == xTab)
-        xDirection = new LeftDirection();
+        xDirection = Directions.LEFT;
       else if (resizeArea.getRight() == xTab)
-        xDirection = new RightDirection();
+        xDirection = Directions.RIGHT;
       assert xDirection != null;
     }
     if (yTab != null) {
       if (resizeArea.getTop() == yTab)
-        yDirection = new TopDirection();
+        yDirection = Directions.TOP;
       else if (resizeArea.getBottom() == yTab)
-        yDirection = new BottomDirection();
+        yDirection = Directions.BOTTOM;
       assert yDirection != null;
     }
     if (xDirection != null) {
-      getResizeCandidateTabs(xCandidates, resizeArea, layoutEditor.getAlgebraData().getXTabEdges(), xDirection);
-      targetXTab = resize(xCandidates, x, xDirection, new BottomDirection());
-      if (targetXTab == null && !layoutEditor.isOverTab(xDirection.getTab(resizeArea), x) && resizeArea.getRect().contains(x, y)
+      if (session.xCandidates == null) {
+        getResizeCandidateTabs(xCandidates, resizeArea, layoutEditor.getAlgebraData().getXTabEdges(), xDirection);
+        session.xCandidates = xCandidates;
+      } else
+        xCandidates.addAll(session.xCandidates);
+    }
+    if (yDirection != null) {
+      if (session.yCandidates == null) {
+        getResizeCandidateTabs(yCandidates, resizeArea, layoutEditor.getAlgebraData().getYTabEdges(), yDirection);
+        session.yCandidates = yCandidates;
+      } else
+        yCandidates.addAll(session.yCandidates);
+    }
+    update(x, y);
+  }
+
+  /**
+   * Detects the resize for a new cursor position. The LayoutEditor reuses the operation for all events of a resize gesture, so the
+   * feedback has to be read with the editor lock held.
+   */
+  void update(float x, float y) {
+    targetXTab = null;
+    targetYTab = null;
+    targetCandidate = null;
+    detachX = false;
+    detachY = false;
+    if (xDirection != null) {
+      targetXTab = resize(xCandidates, x, xDirection, Directions.BOTTOM);
+      if (targetXTab == null && !layoutEditor.isOverTab(xDirection.getTab(resizeArea), x) && contains(resizeArea, x, y)
           && Math.abs(xDirection.getTab(resizeArea).getValue() - x) < layoutEditor.getDetachThresholdModel()) {
-        if (detach(xDirection, new BottomDirection()))
+        if (detach(xDirection, Directions.BOTTOM))
           detachX = true;
       }
     }
     if (yDirection != null) {
-      getResizeCandidateTabs(yCandidates, resizeArea, layoutEditor.getAlgebraData().getYTabEdges(), yDirection);
-      targetYTab = resize(yCandidates, y, yDirection, new RightDirection());
-      if (targetYTab == null && !layoutEditor.isOverTab(yDirection.getTab(resizeArea), y) && resizeArea.getRect().contains(x, y)
+      targetYTab = resize(yCandidates, y, yDirection, Directions.RIGHT);
+      if (targetYTab == null && !layoutEditor.isOverTab(yDirection.getTab(resizeArea), y) && contains(resizeArea, x, y)
           && Math.abs(yDirection.getTab(resizeArea).getValue() - y) < layoutEditor.getDetachThresholdModel()) {
-        if (detach(yDirection, new RightDirection()))
+        if (detach(yDirection, Directions.RIGHT))
           detachY = true;
       }
     }
   }
 
+  static private boolean contains(Area area, float x, float y) {
+    return RectIndex.contains((float)area.getLeft().getValue(), (float)area.getTop().getValue(), (float)area.getRight().getValue(),
+                              (float)area.getBottom().getValue(), x, y);
+  }
+
   private Candidate getNewCandidate() {
     if (targetCandidate == null) {
       Candidate candidate = new Candidate();
@@ -98,22 +131,70 @@ public class ResizeOperation extends AbstractEditOperation {
     }
   }
 
-  private <Tab extends Variable> Tab resize(List<Tab> tabs, float position, IDirection direction, IDirection orthDirection) {
-    for (Tab tab : tabs) {
-      if (layoutEditor.isOverTab(tab, position)) {
-        Candidate candidate = getNewCandidate();
-        EmptySpace resizeSpace = candidate.emptySpace;
-        if (TilingAlgebra.resize(candidate.algebraData, resizeSpace, tab, direction, orthDirection)) {
-          targetCandidate = candidate;
-          return tab;
-        }
+  /**
+   * Resizes to the first tab the cursor is over that works. The results are memoized in the session and tabs that fail the
+   * TilingPreCheck are rejected without cloning the layout.
+   */
+  private <Tab extends Variable> Tab resize(List<Tab> tabs, float position, IDirection<Tab, ?> direction,
+                                            IDirection<?, ?> orthDirection) {
+    Map<Variable, Candidate> results = session.getResizeResults(targetCandidate);
+    for (int i = 0; i < tabs.size(); i++) {
+      Tab tab = tabs.get(i);
+      if (!layoutEditor.isOverTab(tab, position))
+        continue;
+      Candidate candidate;
+      if (results.containsKey(tab))
+        candidate = results.get(tab);
+      else {
+        candidate = tryResize(tab, direction, orthDirection);
+        results.put(tab, candidate);
+      }
+      if (candidate != null) {
+        targetCandidate = candidate;
+        return tab;
       }
     }
     return null;
   }
 
+  private Candidate tryResize(Variable tab, IDirection<?, ?> direction, IDirection<?, ?> orthDirection) {
+    // the space of a memoized candidate is only part of the candidate's layout
+    AlgebraData data = layoutEditor.getAlgebraData();
+    IArea space = resizeArea;
+    if (targetCandidate != null) {
+      data = targetCandidate.algebraData;
+      space = targetCandidate.emptySpace;
+    }
+    TabIndex<?> tabIndex = tab instanceof XTab ? layoutEditor.getXTabIndex() : layoutEditor.getYTabIndex();
+    if (!TilingPreCheck.canResize(data, tabIndex, resizeArea, space, tab, direction))
+      return null;
+    Candidate candidate = getNewCandidate();
+    if (!TilingAlgebra.resize(candidate.algebraData, candidate.emptySpace, tab, direction, orthDirection))
+      return null;
+    return candidate;
+  }
+
+  /**
+   * Detaches the area in the given direction. The result is memoized in the session.
+   */
   private <Tab extends Variable, OrthTab extends Variable>
   boolean detach(IDirection<Tab, OrthTab> direction, IDirection<OrthTab, Tab> orthDirection) {
+    Map<Class<?>, Candidate> results = session.getDetachResults(targetCandidate);
+    Candidate candidate;
+    if (results.containsKey(direction.getClass()))
+      candidate = results.get(direction.getClass());
+    else {
+      candidate = tryDetach(direction, orthDirection);
+      results.put(direction.getClass(), candidate);
+    }
+    if (candidate == null)
+      return false;
+    targetCandidate = candidate;
+    return true;
+  }
+
+  private <Tab extends Variable, OrthTab extends Variable>
+  Candidate tryDetach(IDirection<Tab, OrthTab> direction, IDirection<OrthTab, Tab> orthDirection) {
     Candidate candidate = getNewCandidate();
     AlgebraData data = candidate.algebraData;
     EmptySpace resizeSpace = candidate.emptySpace;
@@ -136,22 +217,29 @@ public class ResizeOperation extends AbstractEditOperation {
     TilingAlgebra.addAreaAtEmptySpace(data, dummy, resizeSpace);
     List<Area> group = LayoutItemPath.detect(dummy, data.getXTabEdges(), data.getYTabEdges());
     if (!FillGap.isConnectedToBorder1OrBorder2(data, group, direction))
-      return false;
+      return null;
     data.removeArea(dummy);
     data.addArea(resizeSpace);
 
-    targetCandidate = candidate;
-    return true;
+    return candidate;
   }
 
-  private <Tab extends Variable> void getResizeCandidateTabs(List<Tab> candidates, Area area, Map<Tab, Edge> edges, IDirection direction) {
+  private <Tab extends Variable> void getResizeCandidateTabs(List<Tab> candidates, Area area, Map<Tab, Edge> edges,
+                                                             IDirection<Tab, ?> direction) {
     candidates.clear();
-    for (Map.Entry<Tab, Edge> entry : edges.entrySet()) {
-      Tab currentTab = entry.getKey();
-      if (currentTab == direction.getTab(area) || currentTab == direction.getOppositeTab(area))
+    ChainIndex<Tab> chainIndex = layoutEditor.getChainIndex(edges, direction);
+    TabTable<Tab> table = chainIndex.getTable();
+    Tab oppositeTab = direction.getOppositeTab(area);
+    int tabId = table.getId(direction.getTab(area));
+    int oppositeId = table.getId(oppositeTab);
+    for (int id = 0; id < table.size(); id++) {
+      if (id == tabId || id == oppositeId)
         continue;
-      if (!Edge.isInChain(currentTab, direction.getOppositeTab(area), edges, direction))
-        candidates.add(currentTab);
+      if (oppositeId < 0) {
+        if (!chainIndex.isInChain(table.getTab(id), oppositeTab))
+          candidates.add(table.getTab(id));
+      } else if (!chainIndex.isInChain(id, oppositeId))
+        candidates.add(table.getTab(id));
     }
   }
 
@@ -189,6 +277,8 @@ public class ResizeOperation extends AbstractEditOperation {
       FillGap.fill(algebraData, resizedTabY, yDirection, yDirection.getOppositeDirection());
   }
 
+  private Feedback feedback;
+
   public class Feedback implements IEditOperationFeedback {
     public List<XTab> getXTabCandidates() {
       return xCandidates;
@@ -214,7 +304,10 @@ public class ResizeOperation extends AbstractEditOperation {
 
   @Override
   public IEditOperationFeedback getFeedback() {
-    return new Feedback();
+    // the feedback only reads the operation, so one instance is enough
+    if (feedback == null)
+      feedback = new Feedback();
+    return feedback;
   }
 }
 
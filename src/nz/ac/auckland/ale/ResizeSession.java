@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.Area;
+import nz.ac.auckland.alm.XTab;
+import nz.ac.auckland.alm.YTab;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Results of the ResizeOperations of one resize gesture, i.e. for the same area and tabs in the same layout revision.
+ *
+ * The result of resizing to a tab only depends on the candidate the resize starts from, so the results are stored per base
+ * candidate and tab. A null result marks a tab the area can't be resized to. In the same way, detaching only depends on the base
+ * candidate and the direction, not on the cursor position, so these results are stored per base candidate and direction. The
+ * stored candidates are shared between the operations and must not be modified.
+ */
+class ResizeSession {
+  final Area resizeArea;
+  final XTab xTab;
+  final YTab yTab;
+  List<XTab> xCandidates;
+  List<YTab> yCandidates;
+  // the operation of the gesture, it is updated for every event
+  ResizeOperation operation;
+  // the base candidate is null if the resize starts from the unchanged layout
+  final private Map<ResizeOperation.Candidate, Map<Variable, ResizeOperation.Candidate>> resizeResults
+    = new IdentityHashMap<ResizeOperation.Candidate, Map<Variable, ResizeOperation.Candidate>>();
+  // detach results per base candidate and direction class
+  final private Map<ResizeOperation.Candidate, Map<Class<?>, ResizeOperation.Candidate>> detachResults
+    = new IdentityHashMap<ResizeOperation.Candidate, Map<Class<?>, ResizeOperation.Candidate>>();
+
+  ResizeSession(Area resizeArea, XTab xTab, YTab yTab) {
+    this.resizeArea = resizeArea;
+    this.xTab = xTab;
+    this.yTab = yTab;
+  }
+
+  boolean matches(Area resizeArea, XTab xTab, YTab yTab) {
+    return this.resizeArea == resizeArea && this.xTab == xTab && this.yTab == yTab;
+  }
+
+  Map<Variable, ResizeOperation.Candidate> getResizeResults(ResizeOperation.Candidate base) {
+    Map<Variable, ResizeOperation.Candidate> results = resizeResults.get(base);
+    if (results == null) {
+      results = new IdentityHashMap<Variable, ResizeOperation.Candidate>();
+      resizeResults.put(base, results);
+    }
+    return results;
+  }
+
+  Map<Class<?>, ResizeOperation.Candidate> getDetachResults(ResizeOperation.Candidate base) {
+    Map<Class<?>, ResizeOperation.Candidate> results = detachResults.get(base);
+    if (results == null) {
+      results = new HashMap<Class<?>, ResizeOperation.Candidate>();
+      detachResults.put(base, results);
+    }
+    return results;
+  }
+}
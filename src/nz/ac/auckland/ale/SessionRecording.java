@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.*;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * A recorded drag or resize session: the layout at the start of the session and the detection requests in model coordinates.
+ *
+ * A recording can be written to a compact gzipped binary file and replayed through a LayoutEditor, e.g. to reproduce a slow
+ * session. Only the tiling is recorded, custom constraints of the layout are not.
+ */
+public class SessionRecording {
+  static final int MAGIC = 0x414c4553;
+  static final int VERSION = 2;
+
+  static final byte DRAG = 1;
+  static final byte RESIZE = 2;
+
+  // kinds of the recorded areas
+  static final byte AREA = 0;
+  static final byte EMPTY_SPACE = 1;
+
+  static final byte NONE = 0;
+  static final byte LEFT_OR_TOP = 1;
+  static final byte RIGHT_OR_BOTTOM = 2;
+
+  static public class Event {
+    final byte type;
+    // index of the moved or resized area, -1 for a new area
+    final int area;
+    final float x;
+    final float y;
+    // drag
+    float rectLeft;
+    float rectTop;
+    float rectRight;
+    float rectBottom;
+    // resize
+    byte xSide = NONE;
+    byte ySide = NONE;
+
+    Event(byte type, int area, float x, float y) {
+      this.type = type;
+      this.area = area;
+      this.x = x;
+      this.y = y;
+    }
+
+    public boolean isDrag() {
+      return type == DRAG;
+    }
+  }
+
+  final private double[] xTabs;
+  final private double[] yTabs;
+  // left, top, right and bottom tab index of the layout, followed by the tab indices of the areas
+  final private int[] tabIndices;
+  // kind of each area, AREA or EMPTY_SPACE
+  final private byte[] areaKinds;
+  final private List<Event> events = new ArrayList<Event>();
+  // only set while recording
+  private Map<IArea, Integer> areaIds;
+
+  private SessionRecording(double[] xTabs, double[] yTabs, int[] tabIndices, byte[] areaKinds) {
+    this.xTabs = xTabs;
+    this.yTabs = yTabs;
+    this.tabIndices = tabIndices;
+    this.areaKinds = areaKinds;
+  }
+
+  /**
+   * Starts a recording with a snapshot of the layout.
+   */
+  static public SessionRecording start(LayoutSpec layoutSpec) {
+    Map<Variable, Integer> xIds = new IdentityHashMap<Variable, Integer>();
+    Map<Variable, Integer> yIds = new IdentityHashMap<Variable, Integer>();
+    List<Variable> xList = new ArrayList<Variable>();
+    List<Variable> yList = new ArrayList<Variable>();
+    List<IArea> areas = layoutSpec.getAreas();
+    int[] tabIndices = new int[4 + 4 * areas.size()];
+    byte[] areaKinds = new byte[areas.size()];
+    tabIndices[0] = getId(xIds, xList, layoutSpec.getLeft());
+    tabIndices[1] = getId(yIds, yList, layoutSpec.getTop());
+    tabIndices[2] = getId(xIds, xList, layoutSpec.getRight());
+    tabIndices[3] = getId(yIds, yList, layoutSpec.getBottom());
+    Map<IArea, Integer> areaIds = new IdentityHashMap<IArea, Integer>();
+    for (int i = 0; i < areas.size(); i++) {
+      IArea area = areas.get(i);
+      areaIds.put(area, i);
+      areaKinds[i] = area instanceof EmptySpace ? EMPTY_SPACE : AREA;
+      tabIndices[4 + 4 * i] = getId(xIds, xList, area.getLeft());
+      tabIndices[5 + 4 * i] = getId(yIds, yList, area.getTop());
+      tabIndices[6 + 4 * i] = getId(xIds, xList, area.getRight());
+      tabIndices[7 + 4 * i] = getId(yIds, yList, area.getBottom());
+    }
+    SessionRecording recording = new SessionRecording(getValues(xList), getValues(yList), tabIndices, areaKinds);
+    recording.areaIds = areaIds;
+    return recording;
+  }
+
+  static private int getId(Map<Variable, Integer> ids, List<Variable> tabs, Variable tab) {
+    Integer id = ids.get(tab);
+    if (id == null) {
+      id = tabs.size();
+      ids.put(tab, id);
+      tabs.add(tab);
+    }
+    return id;
+  }
+
+  static private double[] getValues(List<Variable> tabs) {
+    double[] values = new double[tabs.size()];
+    for (int i = 0; i < values.length; i++)
+      values[i] = tabs.get(i).getValue();
+    return values;
+  }
+
+  private int getAreaId(Area area) {
+    Integer id = area == null ? null : areaIds.get(area);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Records the arguments of a LayoutEditor.detectDragOperation call.
+   */
+  public synchronized void recordDrag(Area movedArea, Area.Rect dragRect, float dragX, float dragY) {
+    Event event = new Event(DRAG, getAreaId(movedArea), dragX, dragY);
+    event.rectLeft = dragRect.left;
+    event.rectTop = dragRect.top;
+    event.rectRight = dragRect.right;
+    event.rectBottom = dragRect.bottom;
+    events.add(event);
+  }
+
+  /**
+   * Records the arguments of a LayoutEditor.detectResizeOperation call.
+   */
+  public synchronized void recordResize(Area resizeArea, XTab movedXTab, YTab movedYTab, float dragX, float dragY) {
+    Event event = new Event(RESIZE, getAreaId(resizeArea), dragX, dragY);
+    if (movedXTab != null)
+      event.xSide = movedXTab == resizeArea.getLeft() ? LEFT_OR_TOP : RIGHT_OR_BOTTOM;
+    if (movedYTab != null)
+      event.ySide = movedYTab == resizeArea.getTop() ? LEFT_OR_TOP : RIGHT_OR_BOTTOM;
+    events.add(event);
+  }
+
+  public List<Event> getEvents() {
+    return events;
+  }
+
+  /**
+   * Creates the recorded layout, including its empty spaces. The areas of the returned LayoutSpec are in the recorded order, as
+   * expected by replay().
+   */
+  @SuppressWarnings("unchecked")
+  public LayoutSpec createLayoutSpec() {
+    XTab[] x = new XTab[xTabs.length];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = new XTab("x" + i);
+      x[i].setValue(xTabs[i]);
+    }
+    YTab[] y = new YTab[yTabs.length];
+    for (int i = 0; i < y.length; i++) {
+      y[i] = new YTab("y" + i);
+      y[i].setValue(yTabs[i]);
+    }
+    List<IArea> areas = new ArrayList<IArea>();
+    for (int i = 0; i < areaKinds.length; i++) {
+      int tabs = 4 + 4 * i;
+      XTab left = x[tabIndices[tabs]];
+      YTab top = y[tabIndices[tabs + 1]];
+      XTab right = x[tabIndices[tabs + 2]];
+      YTab bottom = y[tabIndices[tabs + 3]];
+      if (areaKinds[i] == EMPTY_SPACE)
+        areas.add(new EmptySpace(left, top, right, bottom));
+      else
+        areas.add(new Area(left, top, right, bottom));
+    }
+    return LayoutSpec.clone(areas, Collections.EMPTY_LIST, x[tabIndices[0]], y[tabIndices[1]], x[tabIndices[2]],
+                            y[tabIndices[3]]);
+  }
+
+  /**
+   * Runs the detection of the event.
+   *
+   * @param layoutSpec a layout created by createLayoutSpec() that is edited by the layoutEditor
+   */
+  public IEditOperation replay(Event event, LayoutEditor layoutEditor, LayoutSpec layoutSpec) {
+    Area area = event.area < 0 ? null : (Area)layoutSpec.getAreas().get(event.area);
+    if (event.type == DRAG) {
+      Area.Rect dragRect = new Area.Rect(event.rectLeft, event.rectTop, event.rectRight, event.rectBottom);
+      return layoutEditor.detectDragOperation(area, dragRect, event.x, event.y);
+    }
+    if (area == null)
+      return null;
+    XTab xTab = null;
+    if (event.xSide != NONE)
+      xTab = event.xSide == LEFT_OR_TOP ? area.getLeft() : area.getRight();
+    YTab yTab = null;
+    if (event.ySide != NONE)
+      yTab = event.ySide == LEFT_OR_TOP ? area.getTop() : area.getBottom();
+    return layoutEditor.detectResizeOperation(area, xTab, yTab, event.x, event.y);
+  }
+
+  public synchronized void write(OutputStream outputStream) throws IOException {
+    GZIPOutputStream zipStream = new GZIPOutputStream(outputStream);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(zipStream));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    writeDoubles(out, xTabs);
+    writeDoubles(out, yTabs);
+    out.writeInt(tabIndices.length);
+    for (int index : tabIndices)
+      out.writeInt(index);
+    out.writeInt(areaKinds.length);
+    out.write(areaKinds);
+    out.writeInt(events.size());
+    for (Event event : events) {
+      out.writeByte(event.type);
+      out.writeInt(event.area);
+      out.writeFloat(event.x);
+      out.writeFloat(event.y);
+      if (event.type == DRAG) {
+        out.writeFloat(event.rectLeft);
+        out.writeFloat(event.rectTop);
+        out.writeFloat(event.rectRight);
+        out.writeFloat(event.rectBottom);
+      } else {
+        out.writeByte(event.xSide);
+        out.writeByte(event.ySide);
+      }
+    }
+    out.flush();
+    zipStream.finish();
+  }
+
+  static public SessionRecording read(InputStream inputStream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)));
+    if (in.readInt() != MAGIC)
+      throw new IOException("Not a session recording");
+    int version = in.readInt();
+    if (version != VERSION)
+      throw new IOException("Unsupported session recording version: " + version);
+    double[] xTabs = readDoubles(in);
+    double[] yTabs = readDoubles(in);
+    int[] tabIndices = new int[in.readInt()];
+    for (int i = 0; i < tabIndices.length; i++)
+      tabIndices[i] = in.readInt();
+    byte[] areaKinds = new byte[in.readInt()];
+    in.readFully(areaKinds);
+    if (tabIndices.length != 4 + 4 * areaKinds.length)
+      throw new IOException("Corrupt session recording");
+    SessionRecording recording = new SessionRecording(xTabs, yTabs, tabIndices, areaKinds);
+    int eventCount = in.readInt();
+    for (int i = 0; i < eventCount; i++) {
+      Event event = new Event(in.readByte(), in.readInt(), in.readFloat(), in.readFloat());
+      if (event.type == DRAG) {
+        event.rectLeft = in.readFloat();
+        event.rectTop = in.readFloat();
+        event.rectRight = in.readFloat();
+        event.rectBottom = in.readFloat();
+      } else {
+        event.xSide = in.readByte();
+        event.ySide = in.readByte();
+      }
+      recording.events.add(event);
+    }
+    return recording;
+  }
+
+  static private void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+    out.writeInt(values.length);
+    for (double value : values)
+      out.writeDouble(value);
+  }
+
+  static private double[] readDoubles(DataInputStream in) throws IOException {
+    double[] values = new double[in.readInt()];
+    for (int i = 0; i < values.length; i++)
+      values[i] = in.readDouble();
+    return values;
+  }
+}
@@ -21,6 +21,9 @@ import nz.ac.auckland.alm.XTab;
 import nz.ac.auckland.alm.YTab;
 import nz.ac.auckland.alm.algebra.AlgebraData;
 
+import java.util.Arrays;
+import java.util.List;
+
 public class SwapOperation extends AbstractEditOperation {
   final Area draggedArea;
   Area targetArea;
@@ -58,6 +61,13 @@ public class SwapOperation extends AbstractEditOperation {
     layoutStructure.addArea(targetArea);
   }
 
+  @Override
+  List<Area> getChangedAreas() {
+    return Arrays.asList(draggedArea, targetArea);
+  }
+
+  private Feedback feedback;
+
   public class Feedback implements IEditOperationFeedback {
     public Area getTargetArea() {
       return targetArea;
@@ -66,6 +76,9 @@ public class SwapOperation extends AbstractEditOperation {
 
   @Override
   public IEditOperationFeedback getFeedback() {
-    return new Feedback();
+    // the feedback only reads the operation, so one instance is enough
+    if (feedback == null)
+      feedback = new Feedback();
+    return feedback;
   }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.LayoutSpec;
+import nz.ac.auckland.alm.algebra.Edge;
+import nz.ac.auckland.alm.algebra.IDirection;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Sorted tab positions for binary searches.
+ *
+ * Tabs at (fuzzy) the same position are grouped. For every tab the index stores the range of following and preceding tabs that
+ * have the same position, so that a search only has to look at the group to pick the first tab in a chain.
+ */
+class TabIndex<Tab extends Variable> {
+  final Object[] tabs;
+  final double[] positions;
+  // last index of the tabs following i that are at the same position as tab i
+  final int[] groupEnd;
+  // first index of the tabs preceding i that are at the same position as tab i
+  final int[] groupStart;
+
+  /**
+   * @param sortedTabs tabs sorted by their value, e.g. AlgebraData.getSortedXTabs()
+   */
+  public TabIndex(List<Tab> sortedTabs) {
+    int size = sortedTabs.size();
+    tabs = sortedTabs.toArray();
+    positions = new double[size];
+    for (int i = 0; i < size; i++)
+      positions[i] = sortedTabs.get(i).getValue();
+
+    groupEnd = new int[size];
+    int end = 0;
+    for (int i = 0; i < size; i++) {
+      end = Math.max(end, i);
+      while (end + 1 < size && LayoutSpec.fuzzyEquals(positions[i], positions[end + 1]))
+        end++;
+      groupEnd[i] = end;
+    }
+    groupStart = new int[size];
+    int start = size - 1;
+    for (int i = size - 1; i >= 0; i--) {
+      start = Math.min(start, i);
+      while (start - 1 >= 0 && LayoutSpec.fuzzyEquals(positions[i], positions[start - 1]))
+        start--;
+      groupStart[i] = start;
+    }
+  }
+
+  public int size() {
+    return positions.length;
+  }
+
+  @SuppressWarnings("unchecked")
+  public Tab get(int i) {
+    return (Tab)tabs[i];
+  }
+
+  /**
+   * @return index of the first tab that is larger than value or size() if there is no such tab
+   */
+  public int firstLarger(double value) {
+    int low = 0;
+    int high = positions.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (positions[middle] > value)
+        high = middle;
+      else
+        low = middle + 1;
+    }
+    return low;
+  }
+
+  /**
+   * @return index of the last tab that is smaller than value or -1 if there is no such tab
+   */
+  public int lastSmaller(double value) {
+    int low = 0;
+    int high = positions.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (positions[middle] < value)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low - 1;
+  }
+
+  /**
+   * Finds the first tab that is larger than value. If there are multiple tabs at this position the first tab in the chain is
+   * picked.
+   */
+  public Tab findFirstLargerTab(double value, Map<Tab, Edge> edges, IDirection<Tab, ?> direction) {
+    int i = firstLarger(value);
+    if (i >= size())
+      return null;
+    Tab tab = get(i);
+    for (int j = i + 1; j <= groupEnd[i]; j++) {
+      Tab nextTab = get(j);
+      if (Edge.isInChain(nextTab, tab, edges, direction))
+        tab = nextTab;
+    }
+    return tab;
+  }
+
+  /**
+   * Finds the first tab that is smaller than value. If there are multiple tabs at this position the first tab in the chain is
+   * picked.
+   */
+  public Tab findFirstSmallerTab(double value, Map<Tab, Edge> edges, IDirection<Tab, ?> direction) {
+    int i = lastSmaller(value);
+    if (i < 0)
+      return null;
+    Tab tab = get(i);
+    for (int j = i - 1; j >= groupStart[i]; j--) {
+      Tab nextTab = get(j);
+      if (Edge.isInChain(nextTab, tab, edges, direction))
+        tab = nextTab;
+    }
+    return tab;
+  }
+}
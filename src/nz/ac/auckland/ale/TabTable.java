@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.IArea;
+import nz.ac.auckland.alm.algebra.Edge;
+import nz.ac.auckland.alm.algebra.IDirection;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The tabs of an edge map with dense integer ids.
+ *
+ * The tabs that follow a tab in the given direction, i.e. the tabs of the areas attached to it in that direction, are stored in
+ * compressed rows: the next tabs of tab i are next[nextStart[i]] to next[nextStart[i + 1] - 1].
+ * The ids follow the iteration order of the edge map. Algorithms can run on the ids and only map back to the tab objects at the
+ * API boundary.
+ */
+class TabTable<Tab extends Variable> {
+  final private List<Tab> tabs;
+  final int[] nextStart;
+  final int[] next;
+  final private Map<Tab, Integer> ids = new IdentityHashMap<Tab, Integer>();
+
+  public TabTable(Map<Tab, Edge> edges, IDirection<Tab, ?> direction) {
+    tabs = new ArrayList<Tab>(edges.keySet());
+    int size = tabs.size();
+    for (int i = 0; i < size; i++)
+      ids.put(tabs.get(i), i);
+
+    nextStart = new int[size + 1];
+    int count = 0;
+    for (int i = 0; i < size; i++)
+      count += direction.getAreas(edges.get(tabs.get(i))).size();
+    int[] buffer = new int[count];
+    count = 0;
+    for (int i = 0; i < size; i++) {
+      nextStart[i] = count;
+      for (IArea area : direction.getAreas(edges.get(tabs.get(i)))) {
+        Integer id = ids.get(direction.getTab(area));
+        if (id != null)
+          buffer[count++] = id;
+      }
+    }
+    nextStart[size] = count;
+    next = count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+  }
+
+  public int size() {
+    return tabs.size();
+  }
+
+  public Tab getTab(int id) {
+    return tabs.get(id);
+  }
+
+  /**
+   * @return the id of the tab or -1 if the tab is not in the table
+   */
+  public int getId(Tab tab) {
+    Integer id = ids.get(tab);
+    if (id == null)
+      return -1;
+    return id;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import nz.ac.auckland.alm.EmptySpace;
+import nz.ac.auckland.alm.IArea;
+import nz.ac.auckland.alm.LayoutSpec;
+import nz.ac.auckland.alm.XTab;
+import nz.ac.auckland.alm.algebra.AlgebraData;
+import nz.ac.auckland.alm.algebra.Edge;
+import nz.ac.auckland.alm.algebra.IDirection;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.util.List;
+
+
+/**
+ * Read-only checks that tell if a TilingAlgebra operation can't succeed.
+ *
+ * The checks only look at the parent structure, so a probe that is rejected by them never has to clone the AlgebraData. A check
+ * returning true doesn't mean the operation succeeds; the caller still has to run it on a clone.
+ */
+class TilingPreCheck {
+  static private Edge getEdge(AlgebraData data, Variable tab) {
+    if (tab instanceof XTab)
+      return data.getXTabEdges().get(tab);
+    return data.getYTabEdges().get(tab);
+  }
+
+  static boolean overlaps(Variable start1, Variable end1, Variable start2, Variable end2) {
+    return overlaps(start1.getValue(), end1.getValue(), start2.getValue(), end2.getValue());
+  }
+
+  static boolean overlaps(double s1, double e1, double s2, double e2) {
+    if (LayoutSpec.fuzzyEquals(e1, s2) || LayoutSpec.fuzzyEquals(e2, s1))
+      return false;
+    return s1 < e2 && s2 < e1;
+  }
+
+  /**
+   * Checks if the space could be extended in the given direction. An extension is impossible if an area (not an empty space) is
+   * attached to the tab of the space in that direction and overlaps with the space in the orthogonal direction.
+   *
+   * @return false if TilingAlgebra.extend would fail
+   */
+  static boolean canExtend(AlgebraData data, IArea space, IDirection<?, ?> direction) {
+    Edge edge = getEdge(data, direction.getTab(space));
+    if (edge == null)
+      return true;
+    Variable orth1 = direction.getOrthogonalTab1(space);
+    Variable orth2 = direction.getOrthogonalTab2(space);
+    for (IArea neighbour : direction.getAreas(edge)) {
+      if (neighbour instanceof EmptySpace)
+        continue;
+      if (overlaps(direction.getOrthogonalTab1(neighbour), direction.getOrthogonalTab2(neighbour), orth1, orth2))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the tab of the space could be moved to the given tab. This is impossible if an area (not an empty space) lies in the
+   * region between the current and the new tab position.
+   *
+   * In a tiling such an area is attached to a tab inside the region, so only the edges of the tabs between the current and the new
+   * position are walked. The tabs are taken from the index of the editor's layout; tabs that only exist in data are not walked,
+   * which can only let a resize pass the check that TilingAlgebra.resize then rejects.
+   *
+   * @param data the layout the space belongs to, its empty spaces are ignored
+   * @param tabIndex the sorted tabs of the layout in the direction
+   * @param resizeArea the area that is resized, it is ignored
+   * @param space the space that is resized, it has to be part of data
+   * @return false if TilingAlgebra.resize would fail
+   */
+  static boolean canResize(AlgebraData data, TabIndex<? extends Variable> tabIndex, IArea resizeArea, IArea space, Variable tab,
+                           IDirection<?, ?> direction) {
+    double from = direction.getTab(space).getValue();
+    double to = tab.getValue();
+    double start = Math.min(from, to);
+    double end = Math.max(from, to);
+    Variable orth1 = direction.getOrthogonalTab1(space);
+    Variable orth2 = direction.getOrthogonalTab2(space);
+    // first tab at the start of the region
+    int i = tabIndex.lastSmaller(start);
+    while (i >= 0 && LayoutSpec.fuzzyEquals(tabIndex.positions[i], start))
+      i--;
+    for (i++; i < tabIndex.size(); i++) {
+      double position = tabIndex.positions[i];
+      if (position > end || LayoutSpec.fuzzyEquals(position, end))
+        break;
+      Edge edge = getEdge(data, tabIndex.get(i));
+      if (edge == null)
+        continue;
+      if (isInRegion(direction.getAreas(edge), resizeArea, direction, orth1, orth2, start, end)
+          || isInRegion(direction.getOppositeAreas(edge), resizeArea, direction, orth1, orth2, start, end))
+        return false;
+    }
+    return true;
+  }
+
+  static private boolean isInRegion(List<IArea> areas, IArea resizeArea, IDirection<?, ?> direction, Variable orth1,
+                                    Variable orth2, double start, double end) {
+    for (IArea area : areas) {
+      if (area == resizeArea || area instanceof EmptySpace)
+        continue;
+      if (!overlaps(direction.getOrthogonalTab1(area), direction.getOrthogonalTab2(area), orth1, orth2))
+        continue;
+      double areaFrom = direction.getTab(area).getValue();
+      double areaTo = direction.getOppositeTab(area).getValue();
+      if (overlaps(Math.min(areaFrom, areaTo), Math.max(areaFrom, areaTo), start, end))
+        return true;
+    }
+    return false;
+  }
+}
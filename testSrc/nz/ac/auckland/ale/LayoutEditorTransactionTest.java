@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nz.ac.auckland.ale;
+
+import junit.framework.TestCase;
+import nz.ac.auckland.alm.*;
+import nz.ac.auckland.alm.algebra.AlgebraData;
+import nz.ac.auckland.linsolve.Variable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+public class LayoutEditorTransactionTest extends TestCase {
+  private Area left;
+  private EmptySpace middle;
+  private Area right;
+  private LayoutSpec layoutSpec;
+
+  /**
+   * Three columns: an area, an empty space and another area.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    XTab[] xTabs = new XTab[4];
+    for (int i = 0; i < xTabs.length; i++) {
+      xTabs[i] = new XTab("x" + i);
+      xTabs[i].setValue(i * 100);
+    }
+    YTab top = new YTab("top");
+    top.setValue(0);
+    YTab bottom = new YTab("bottom");
+    bottom.setValue(100);
+
+    List<IArea> areas = new ArrayList<IArea>();
+    areas.add(new Area(xTabs[0], top, xTabs[1], bottom));
+    areas.add(new EmptySpace(xTabs[1], top, xTabs[2], bottom));
+    areas.add(new Area(xTabs[2], top, xTabs[3], bottom));
+    layoutSpec = LayoutSpec.clone(areas, Collections.EMPTY_LIST, xTabs[0], top, xTabs[3], bottom);
+    for (IArea area : layoutSpec.getAreas()) {
+      if (area instanceof EmptySpace)
+        middle = (EmptySpace)area;
+      else if (area.getLeft().getValue() == 0)
+        left = (Area)area;
+      else
+        right = (Area)area;
+    }
+    assertNotNull(left);
+    assertNotNull(middle);
+    assertNotNull(right);
+  }
+
+  public void testRollbackRestoresAreasAndEmptySpaces() {
+    LayoutEditor layoutEditor = new LayoutEditor(layoutSpec);
+    Variable[] leftTabs = getTabs(left);
+    Variable[] middleTabs = getTabs(middle);
+    Variable[] rightTabs = getTabs(right);
+
+    layoutEditor.beginTransaction();
+    layoutEditor.perform(layoutEditor.getDeleteOperation(left));
+    assertFalse(layoutEditor.getAlgebraData().getAreas().contains(left));
+    layoutEditor.rollbackTransaction();
+
+    assertFalse(layoutEditor.isInTransaction());
+    AlgebraData data = layoutEditor.getAlgebraData();
+    assertEquals(2, data.getAreas().size());
+    assertTrue(data.getAreas().contains(left));
+    assertTrue(data.getAreas().contains(right));
+    assertEquals(1, data.getEmptySpaces().size());
+    assertSame(middle, data.getEmptySpaces().get(0));
+    assertTabs(left, leftTabs);
+    assertTabs(middle, middleTabs);
+    assertTabs(right, rightTabs);
+    assertColumn(left, 0, 100);
+    assertColumn(middle, 100, 200);
+    assertColumn(right, 200, 300);
+
+    // the editor can be used after the rollback
+    layoutEditor.perform(layoutEditor.getDeleteOperation(left));
+    assertFalse(layoutEditor.getAlgebraData().getAreas().contains(left));
+  }
+
+  static private Variable[] getTabs(IArea area) {
+    return new Variable[] {area.getLeft(), area.getTop(), area.getRight(), area.getBottom()};
+  }
+
+  static private void assertTabs(IArea area, Variable[] tabs) {
+    Variable[] areaTabs = getTabs(area);
+    for (int i = 0; i < tabs.length; i++)
+      assertSame(tabs[i], areaTabs[i]);
+  }
+
+  static private void assertColumn(IArea area, double left, double right) {
+    assertEquals(left, area.getLeft().getValue(), 0);
+    assertEquals(right, area.getRight().getValue(), 0);
+    assertEquals(0, area.getTop().getValue(), 0);
+    assertEquals(100, area.getBottom().getValue(), 0);
+  }
+}